@@ -32,7 +32,12 @@ export const AuthProvider = ({ children }) => {
   const [error, setError] = useState(null);
 
   const logout = useCallback(() => {
+    // revoke the token on the server; the bearer header is read before it is removed below
+    if (localStorage.getItem("token")) {
+      authAPI.logout(localStorage.getItem("refreshToken")).catch(() => {});
+    }
     localStorage.removeItem("token");
+    localStorage.removeItem("refreshToken");
     setToken(null);
     setUser(null);
     setIsAuthenticated(false);
@@ -59,7 +64,51 @@ export const AuthProvider = ({ children }) => {
     checkAuth();
   }, []);
 
-  // 2) Auto-logout when JWT expires
+  // renews the access token with the refresh token; no password (and no BCrypt) involved
+  const refreshSession = useCallback(async (expiring) => {
+    const renew = async () => {
+      // tabs share the tokens through localStorage; if another tab renewed them while this one
+      // waited, presenting the used refresh token again would look like a stolen one
+      const current = localStorage.getItem("token");
+      if (current && current !== expiring) {
+        setToken(current);
+        return;
+      }
+      const refreshToken = localStorage.getItem("refreshToken");
+      if (!refreshToken) {
+        logout();
+        return;
+      }
+      try {
+        const data = await authAPI.refresh(refreshToken);
+        localStorage.setItem("token", data.token);
+        localStorage.setItem("refreshToken", data.refreshToken);
+        setToken(data.token);
+      } catch {
+        localStorage.removeItem("refreshToken");
+        logout();
+      }
+    };
+    // one tab refreshes at a time
+    if (navigator.locks) {
+      await navigator.locks.request("vuluz-session-refresh", renew);
+    } else {
+      await renew();
+    }
+  }, [logout]);
+
+  // pick up tokens renewed by another tab, so this tab reschedules instead of refreshing too
+  useEffect(() => {
+    const onStorage = (event) => {
+      if (event.key === "token" && event.newValue) {
+        setToken(event.newValue);
+      }
+    };
+    window.addEventListener("storage", onStorage);
+    return () => window.removeEventListener("storage", onStorage);
+  }, []);
+
+  // 2) Refresh shortly before the JWT expires; logout if that fails
   useEffect(() => {
     if (!token) return;
     const decoded = decodeToken(token);
@@ -67,14 +116,10 @@ export const AuthProvider = ({ children }) => {
       logout();
       return;
     }
-    const msLeft = decoded.exp * 1000 - Date.now();
-    if (msLeft <= 0) {
-      logout();
-      return;
-    }
-    const timeoutId = setTimeout(logout, msLeft);
+    const msLeft = decoded.exp * 1000 - Date.now() - 30 * 1000;
+    const timeoutId = setTimeout(() => refreshSession(token), Math.max(0, msLeft));
     return () => clearTimeout(timeoutId);
-  }, [token, logout]);
+  }, [token, logout, refreshSession]);
 
   // 3) Idle timeout: 15 minutes of inactivity
   useEffect(() => {
@@ -105,6 +150,7 @@ export const AuthProvider = ({ children }) => {
       const data = await authAPI.login(credentials);
       if (data.status === "OK") {
         localStorage.setItem("token", data.token);
+        localStorage.setItem("refreshToken", data.refreshToken);
         setToken(data.token);
 
         const profile = await authAPI.getProfile();
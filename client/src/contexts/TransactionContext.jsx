@@ -1,8 +1,17 @@
-import { createContext, useState, useEffect } from "react";
+import { createContext, useState, useEffect, useRef } from "react";
 import PropTypes from "prop-types";
 import { transactionAPI } from "../utils/api";
 import useAuth from "../hooks/useAuth";
 
+const toTransaction = (tx) => ({
+  id: tx.id,
+  date: new Date(tx.transactionDate),
+  type: tx.transactionType.toUpperCase().replace(" ", "_"),
+  amount: tx.amount,
+  description: tx.description,
+  account: tx.account,
+});
+
 // Create the transaction context
 export const TransactionContext = createContext(null);
 
@@ -13,6 +22,8 @@ export const TransactionProvider = ({ children }) => {
   const [transactions, setTransactions] = useState([]);
   const [filteredTransactions, setFilteredTransactions] = useState([]);
   const [summary, setSummary] = useState({});
+  const [nextCursor, setNextCursor] = useState(null);
+  const [isStreaming, setIsStreaming] = useState(false);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState(null);
   const [filters, setFilters] = useState({
@@ -34,16 +45,10 @@ export const TransactionProvider = ({ children }) => {
         transactionAPI.getSummary(),
       ]);
 
-      const mapped = history.map((tx) => ({
-        id: tx.id,
-        date: new Date(tx.transactionDate),
-        type: tx.transactionType.toUpperCase().replace(" ", "_"),
-        amount: tx.amount,
-        description: tx.description,
-        account: tx.account,
-      }));
+      const mapped = history.data.map(toTransaction);
       setTransactions(mapped);
       setFilteredTransactions(mapped);
+      setNextCursor(history.nextCursor);
 
       setSummary({
         monthlyTopUps: summaryData.totalIncome || 0,
@@ -61,36 +66,33 @@ export const TransactionProvider = ({ children }) => {
     }
   };
 
+  const historyParams = () => {
+    const sortParam =
+      filters.sortKey && filters.sortDirection
+        ? `${filters.sortKey}_${filters.sortDirection}`
+        : "";
+
+    const params = {
+      transactionType: filters.type,
+      fromDate: filters.dateFrom,
+      toDate: filters.dateTo,
+      search: filters.search,
+      sortOrder: sortParam,
+    };
+    Object.keys(params).forEach((k) => !params[k] && delete params[k]);
+    return params;
+  };
+
   // Fetch history only (with filters & sort)
   const loadTransactions = async () => {
     setIsLoading(true);
     setError(null);
     try {
-      const sortParam =
-        filters.sortKey && filters.sortDirection
-          ? `${filters.sortKey}_${filters.sortDirection}`
-          : "";
-
-      const params = {
-        transactionType: filters.type,
-        fromDate: filters.dateFrom,
-        toDate: filters.dateTo,
-        search: filters.search,
-        sortOrder: sortParam,
-      };
-      Object.keys(params).forEach((k) => !params[k] && delete params[k]);
-
-      const history = await transactionAPI.getHistory(params);
-      const mapped = history.map((tx) => ({
-        id: tx.id,
-        date: new Date(tx.transactionDate),
-        type: tx.transactionType.toUpperCase().replace(" ", "_"),
-        amount: tx.amount,
-        description: tx.description,
-        account: tx.account,
-      }));
+      const history = await transactionAPI.getHistory(historyParams());
+      const mapped = history.data.map(toTransaction);
       setTransactions(mapped);
       setFilteredTransactions(mapped);
+      setNextCursor(history.nextCursor);
     } catch (err) {
       setError(err.message || "Failed to load transaction data");
     } finally {
@@ -98,6 +100,30 @@ export const TransactionProvider = ({ children }) => {
     }
   };
 
+  // Fetch the next page of history and append it
+  const loadMoreTransactions = async () => {
+    if (!nextCursor) return;
+    setIsLoading(true);
+    setError(null);
+    try {
+      const history = await transactionAPI.getHistory({
+        ...historyParams(),
+        cursor: nextCursor,
+      });
+      const mapped = history.data.map(toTransaction);
+      setTransactions((prev) => [...prev, ...mapped]);
+      setNextCursor(history.nextCursor);
+    } catch (err) {
+      setError(err.message || "Failed to load transaction data");
+    } finally {
+      setIsLoading(false);
+    }
+  };
+
+  // the stream outlives renders, so it reloads with the current filters through this ref
+  const loadTransactionsRef = useRef(loadTransactions);
+  loadTransactionsRef.current = loadTransactions;
+
   // Helper to reload both in parallel
   const reloadAllData = () => Promise.all([loadData(), loadTransactions()]);
 
@@ -109,6 +135,43 @@ export const TransactionProvider = ({ children }) => {
     if (user) loadTransactions();
   }, [user]);
 
+  // Live balance and new transactions pushed by the server; replaces re-fetching after every action
+  useEffect(() => {
+    if (!user) return;
+    const controller = new AbortController();
+    let retryTimer;
+
+    const connect = () => {
+      transactionAPI
+        .openStream((event, data) => {
+          setIsStreaming(true);
+          if (event === "balance") {
+            setBalance(data.balance);
+            setSummary((prev) => ({ ...prev, currentBalance: data.balance }));
+          } else if (event === "transaction") {
+            const tx = toTransaction(data);
+            setTransactions((prev) =>
+              prev.some((p) => p.id === tx.id) ? prev : [tx, ...prev]
+            );
+          } else if (event === "resync") {
+            // the server could not send a new transaction, so the list is reloaded instead
+            loadTransactionsRef.current();
+          }
+        }, controller.signal)
+        .catch(() => {})
+        .finally(() => {
+          setIsStreaming(false);
+          if (!controller.signal.aborted) retryTimer = setTimeout(connect, 5000);
+        });
+    };
+    connect();
+
+    return () => {
+      clearTimeout(retryTimer);
+      controller.abort();
+    };
+  }, [user]);
+
   // Client-side filtering
   useEffect(() => {
     if (!transactions.length) return;
@@ -148,7 +211,7 @@ export const TransactionProvider = ({ children }) => {
         pin: data.pin || "",
       });
       if (resp.status === "Success" || resp.success === true) {
-        await reloadAllData();
+        if (!isStreaming) await reloadAllData();
         return { success: true, data: resp };
       } else {
         return { success: false, error: resp.message || "Transfer failed" };
@@ -168,7 +231,7 @@ export const TransactionProvider = ({ children }) => {
     setError(null);
     try {
       const resp = await transactionAPI.topUp(data);
-      if (resp.success) await reloadAllData();
+      if (resp.success && !isStreaming) await reloadAllData();
       return resp;
     } catch (err) {
       setError(err.message || "Top-up failed");
@@ -217,6 +280,8 @@ export const TransactionProvider = ({ children }) => {
         applySort,
         clearFilters,
         reloadAllData,
+        loadMoreTransactions,
+        hasMoreTransactions: !!nextCursor,
       }}
     >
       {children}
@@ -54,7 +54,17 @@ export const authAPI = {
       body: JSON.stringify(userData),
     }),
 
-  logout: () => apiRequest("/auth/logout", { method: "POST" }),
+  refresh: (refreshToken) =>
+    apiRequest("/api/auth/refresh", {
+      method: "POST",
+      body: JSON.stringify({ refreshToken }),
+    }),
+
+  logout: (refreshToken) =>
+    apiRequest("/api/auth/logout", {
+      method: "POST",
+      body: JSON.stringify({ refreshToken }),
+    }),
 
   getProfile: () => apiRequest("/api/profile"),
 
@@ -102,6 +112,49 @@ export const transactionAPI = {
     }),
 
   getSummary: () => apiRequest("/api/summary"),
+
+  /**
+   * Opens the wallet event stream. EventSource cannot send the Authorization
+   * header, so the text/event-stream body is read with fetch instead.
+   * @param {Function} onEvent - Called with (eventName, parsedData)
+   * @param {AbortSignal} signal - Aborting closes the stream
+   * @returns {Promise} Resolves when the server closes the stream
+   */
+  openStream: async (onEvent, signal) => {
+    const token = localStorage.getItem("token");
+    const response = await fetch(`${APP_CONFIG.API_BASE_URL}/api/stream`, {
+      headers: {
+        Accept: "text/event-stream",
+        ...(token ? { Authorization: `Bearer ${token}` } : {}),
+      },
+      signal,
+    });
+    if (!response.ok || !response.body) {
+      throw new Error("Failed to open event stream");
+    }
+
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    let buffer = "";
+    for (;;) {
+      const { value, done } = await reader.read();
+      if (done) return;
+      buffer += value;
+
+      let boundary;
+      while ((boundary = buffer.indexOf("\n\n")) !== -1) {
+        const block = buffer.slice(0, boundary);
+        buffer = buffer.slice(boundary + 2);
+
+        let name = "message";
+        const data = [];
+        block.split("\n").forEach((line) => {
+          if (line.startsWith("event:")) name = line.slice(6).trim();
+          else if (line.startsWith("data:")) data.push(line.slice(5));
+        });
+        if (data.length) onEvent(name, JSON.parse(data.join("\n")));
+      }
+    }
+  },
 };
 
 export const mockAPI = {
@@ -119,7 +119,7 @@ export const useWalletStore = create<WalletState>((set, get) => ({
         }
       );
 
-      const backendTransactions = response.data;
+      const backendTransactions = response.data.data;
 
       const transactions: Transaction[] = backendTransactions.map(
         (tx: any) => ({
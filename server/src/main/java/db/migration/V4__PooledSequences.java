@@ -0,0 +1,44 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Moves every table from an identity column to a sequence Hibernate can allocate from in blocks,
+// so inserts can be batched. Each sequence starts past the ids already in use, and becomes the
+// column default so that plain SQL inserts keep working.
+//
+// Written in Java because the starting value has to be read from the data, and PostgreSQL's
+// setval() has no H2 equivalent.
+public class V4__PooledSequences extends BaseJavaMigration {
+    // must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final List<String> TABLES = List.of(
+            "users", "wallet", "favorite", "transaction", "posting", "idempotency_record", "wallet_period_rollup");
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                long maxId;
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                    rs.next();
+                    maxId = rs.getLong(1);
+                }
+
+                // Hibernate's pooled optimizer hands out (value - allocationSize, value] for each nextval,
+                // so the first value must be a full block above the current maximum
+                String sequence = table + "_seq";
+                statement.execute("CREATE SEQUENCE " + sequence
+                        + " START WITH " + (maxId + ALLOCATION_SIZE) + " INCREMENT BY " + ALLOCATION_SIZE);
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY");
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+            }
+        }
+    }
+}
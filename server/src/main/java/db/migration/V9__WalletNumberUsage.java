@@ -0,0 +1,29 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// wallet_number_usage has one row: how many slots of wallet_number_seq have been handed out.
+// Reading it is a catalog lookup, unlike counting the wallets. The sequence's state is exposed
+// differently by PostgreSQL and H2, hence a Java migration.
+public class V9__WalletNumberUsage extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws SQLException {
+        String product = context.getConnection().getMetaData().getDatabaseProductName();
+        try (Statement statement = context.getConnection().createStatement()) {
+            if ("H2".equals(product)) {
+                // BASE_VALUE is the next value nextval would return
+                statement.execute("CREATE VIEW wallet_number_usage AS "
+                        + "SELECT BASE_VALUE - START_VALUE AS issued FROM INFORMATION_SCHEMA.SEQUENCES "
+                        + "WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'wallet_number_seq'");
+            } else {
+                // last_value is the start value until the first nextval sets is_called
+                statement.execute("CREATE VIEW wallet_number_usage AS "
+                        + "SELECT CASE WHEN is_called THEN last_value ELSE 0 END AS issued FROM wallet_number_seq");
+            }
+        }
+    }
+}
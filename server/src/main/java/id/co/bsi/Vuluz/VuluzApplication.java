@@ -2,8 +2,10 @@ package id.co.bsi.Vuluz;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class VuluzApplication {
 
 	public static void main(String[] args) {
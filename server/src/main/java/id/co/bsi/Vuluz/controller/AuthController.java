@@ -1,14 +1,19 @@
 package id.co.bsi.Vuluz.controller;
 
 import id.co.bsi.Vuluz.dto.request.LogInRequest;
+import id.co.bsi.Vuluz.dto.request.LogOutRequest;
+import id.co.bsi.Vuluz.dto.request.RefreshTokenRequest;
 import id.co.bsi.Vuluz.dto.request.RegisterRequest;
 import id.co.bsi.Vuluz.dto.response.LogInResponse;
+import id.co.bsi.Vuluz.dto.response.LogOutResponse;
 import id.co.bsi.Vuluz.dto.response.RegisterResponse;
 import id.co.bsi.Vuluz.dto.response.UserProfileResponse;
 import id.co.bsi.Vuluz.model.User;
 import id.co.bsi.Vuluz.model.Wallet;
 import id.co.bsi.Vuluz.repository.WalletRepository;
+import id.co.bsi.Vuluz.service.RefreshTokenService;
 import id.co.bsi.Vuluz.service.UserService;
+import id.co.bsi.Vuluz.utils.HashingOverloadedException;
 import id.co.bsi.Vuluz.utils.JwtUtility;
 import id.co.bsi.Vuluz.utils.SecurityUtility;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +35,10 @@ public class AuthController {
     private UserDetailsService userDetailsService;
     @Autowired
     private WalletRepository walletRepository;
+    @Autowired
+    private SecurityUtility securityUtility;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
 
 
     @PostMapping("/api/auth/register")
@@ -41,6 +50,10 @@ public class AuthController {
             registerResponse.setStatus("OK");
             registerResponse.setMessage("Register succeed");
             return ResponseEntity.ok(registerResponse);
+        } catch (HashingOverloadedException e) {
+            registerResponse.setStatus("FAILED");
+            registerResponse.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(registerResponse);
         } catch (Exception e) {
 
             registerResponse.setStatus("FAILED");
@@ -54,15 +67,18 @@ public class AuthController {
     public ResponseEntity<LogInResponse> login(@RequestBody LogInRequest loginRequest) {
         LogInResponse loginResponse = new LogInResponse();
         try {
-            String token = this.usersService.login(loginRequest);
+            loginResponse = this.usersService.login(loginRequest);
             loginResponse.setStatus("OK");
             loginResponse.setMessage("Login succeed");
-            loginResponse.setToken(token);
             return ResponseEntity.ok(loginResponse);
         } catch (UsernameNotFoundException e) {
             loginResponse.setStatus("FAILED");
             loginResponse.setMessage("Email not found");
             return ResponseEntity.badRequest().body(loginResponse);
+        } catch (HashingOverloadedException e) {
+            loginResponse.setStatus("FAILED");
+            loginResponse.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(loginResponse);
         } catch (Exception e) {
             loginResponse.setStatus("FAILED");
             loginResponse.setMessage("Password incorrect");
@@ -70,6 +86,44 @@ public class AuthController {
         }
     }
 
+    // new access and refresh tokens for a refresh token, without the password
+    @PostMapping("/api/auth/refresh")
+    public ResponseEntity<LogInResponse> refresh(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        try {
+            LogInResponse refreshResponse = refreshTokenService.refresh(refreshTokenRequest.getRefreshToken());
+            refreshResponse.setStatus("OK");
+            refreshResponse.setMessage("Token refreshed");
+            return ResponseEntity.ok(refreshResponse);
+        } catch (RuntimeException e) {
+            LogInResponse refreshResponse = new LogInResponse();
+            refreshResponse.setStatus("FAILED");
+            refreshResponse.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(refreshResponse);
+        }
+    }
+
+    // revokes the token in the body, or the one this request was sent with
+    @PostMapping("/api/auth/logout")
+    public ResponseEntity<LogOutResponse> logout(@RequestBody(required = false) LogOutRequest logOutRequest,
+                                                 @RequestHeader("Authorization") String authorization) {
+        LogOutResponse logOutResponse = new LogOutResponse();
+        try {
+            String token = logOutRequest != null && logOutRequest.getToken() != null
+                    ? logOutRequest.getToken()
+                    : authorization.substring(7);
+            String refreshToken = logOutRequest != null ? logOutRequest.getRefreshToken() : null;
+            this.usersService.logout(token, refreshToken, securityUtility.getCurrentUserId());
+
+            logOutResponse.setStatus("OK");
+            logOutResponse.setMessage("Logout succeed");
+            return ResponseEntity.ok(logOutResponse);
+        } catch (Exception e) {
+            logOutResponse.setStatus("FAILED");
+            logOutResponse.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(logOutResponse);
+        }
+    }
+
     @GetMapping("/api/wallet/owner/{walletNumber}")
     public ResponseEntity<?> getOwnerByWalletNumber(@PathVariable Long walletNumber) {
         Wallet wallet = walletRepository.findByWalletNumber(walletNumber)
@@ -1,18 +1,20 @@
 package id.co.bsi.Vuluz.controller;
 
-import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
 import id.co.bsi.Vuluz.dto.TransactionSummaryResponse;
 import id.co.bsi.Vuluz.dto.response.BalanceResponse;
+import id.co.bsi.Vuluz.dto.response.TransactionHistoryPageResponse;
 import id.co.bsi.Vuluz.service.DashboardService;
 import id.co.bsi.Vuluz.service.TransactionService;
 import id.co.bsi.Vuluz.service.UserService;
-import id.co.bsi.Vuluz.utils.SecurityUtility;
+import id.co.bsi.Vuluz.service.WalletStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -25,7 +27,7 @@ public class DashboardController {
     private DashboardService dashboardService;
 
     @Autowired
-    private SecurityUtility securityUtility;
+    private WalletStreamService walletStreamService;
 
     @GetMapping("/api/history")
     public ResponseEntity<?> getTransactionHistory(
@@ -33,13 +35,16 @@ public class DashboardController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
             @RequestParam(required = false, defaultValue = "") String search,
-            @RequestParam(required = false, defaultValue = "") String sortOrder
+            @RequestParam(required = false, defaultValue = "") String sortOrder,
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor
     ) {
         try {
-            Long userId = securityUtility.getCurrentUserId();
-            List<TransactionHistoryResponse> history = dashboardService.getTransactionHistory(
-                    userId, transactionType, fromDate, toDate, search, sortOrder);
+            TransactionHistoryPageResponse history = dashboardService.getTransactionHistory(
+                    transactionType, fromDate, toDate, search, sortOrder, size, cursor);
             return ResponseEntity.ok(history);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(401).body("Invalid token or user not found");
         }
@@ -61,6 +66,13 @@ public class DashboardController {
         }
     }
 
+    // pushes "balance" and "transaction" events for the caller's wallet, starting with the current balance
+    @GetMapping(path = "/api/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        BalanceResponse balance = dashboardService.getBalance();
+        return walletStreamService.subscribe(dashboardService.getCurrentWalletId(), balance);
+    }
+
     @GetMapping("/api/cashflow")
     public ResponseEntity<?> getCashflow(
             @RequestParam(defaultValue = "weekly") String period
@@ -1,23 +1,16 @@
 package id.co.bsi.Vuluz.controller;
 
-import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
 import id.co.bsi.Vuluz.dto.request.*;
 import id.co.bsi.Vuluz.dto.response.*;
-import id.co.bsi.Vuluz.model.User;
-import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.service.IdempotencyService;
+import id.co.bsi.Vuluz.service.PinUnlockService;
 import id.co.bsi.Vuluz.service.TransactionService;
-import id.co.bsi.Vuluz.service.UserService;
-import id.co.bsi.Vuluz.utils.SecurityUtility;
-import org.apache.coyote.Response;
+import id.co.bsi.Vuluz.utils.HashingOverloadedException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,16 +21,41 @@ public class TransactionController {
     private TransactionService transactionService;
 
     @Autowired
-    private UserService userService;
+    private IdempotencyService idempotencyService;
 
     @Autowired
-    private SecurityUtility securityUtility;
+    private PinUnlockService pinUnlockService;
+
+    @PostMapping("/api/pin/unlock")
+    public ResponseEntity<PinUnlockResponse> unlockPin(@RequestBody PinUnlockRequest pinUnlockRequest) {
+        try {
+            return ResponseEntity.ok(pinUnlockService.unlock(pinUnlockRequest));
+        } catch (HashingOverloadedException e) {
+            PinUnlockResponse response = new PinUnlockResponse();
+            response.setStatus("Error");
+            response.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        } catch (RuntimeException e) {
+            PinUnlockResponse response = new PinUnlockResponse();
+            response.setStatus("Error");
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 
     @PostMapping("/api/transfer")
-    public ResponseEntity<TransferResponse> transfer(@RequestBody TransferRequest transferRequest) {
+    public ResponseEntity<TransferResponse> transfer(@RequestBody TransferRequest transferRequest,
+                                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                     @RequestHeader(value = "X-Pin-Unlock", required = false) String pinUnlockToken) {
         try {
-            TransferResponse response = transactionService.transfer(transferRequest);
+            TransferResponse response = idempotencyService.execute(idempotencyKey, "transfer", transferRequest,
+                    TransferResponse.class, claimId -> transactionService.transfer(transferRequest, pinUnlockToken, claimId));
             return ResponseEntity.ok(response);
+        } catch (HashingOverloadedException e) {
+            TransferResponse response = new TransferResponse();
+            response.setStatus("Error");
+            response.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
         } catch (RuntimeException e) {
             TransferResponse response = new TransferResponse();
             response.setStatus("Error");
@@ -47,10 +65,18 @@ public class TransactionController {
     }
 
     @PostMapping("api/topup")
-    public ResponseEntity<TopUpResponse> topup(@RequestBody TopUpRequest topUpRequest){
+    public ResponseEntity<TopUpResponse> topup(@RequestBody TopUpRequest topUpRequest,
+                                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                               @RequestHeader(value = "X-Pin-Unlock", required = false) String pinUnlockToken){
         try {
-            TopUpResponse topUpResponse = transactionService.topup(topUpRequest);
+            TopUpResponse topUpResponse = idempotencyService.execute(idempotencyKey, "topup", topUpRequest,
+                    TopUpResponse.class, claimId -> transactionService.topup(topUpRequest, pinUnlockToken, claimId));
             return ResponseEntity.ok(topUpResponse);
+        } catch (HashingOverloadedException e){
+            TopUpResponse topUpResponse = new TopUpResponse();
+            topUpResponse.setStatus("Error");
+            topUpResponse.setMessage(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(topUpResponse);
         } catch (RuntimeException e){
             TopUpResponse topUpResponse = new TopUpResponse();
             topUpResponse.setStatus("Error");
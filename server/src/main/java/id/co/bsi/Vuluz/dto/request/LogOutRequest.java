@@ -5,4 +5,5 @@ import lombok.Data;
 @Data
 public class LogOutRequest {
     private String token;
+    private String refreshToken;
 }
@@ -0,0 +1,8 @@
+package id.co.bsi.Vuluz.dto.request;
+
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+    private String refreshToken;
+}
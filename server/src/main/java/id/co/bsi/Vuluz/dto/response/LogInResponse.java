@@ -7,4 +7,7 @@ public class LogInResponse {
     private String status;
     private String message;
     private String token;
+    private String refreshToken;
+    // lifetime of the access token in seconds
+    private Long expiresIn;
 }
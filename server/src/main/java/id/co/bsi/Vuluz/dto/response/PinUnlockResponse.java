@@ -0,0 +1,11 @@
+package id.co.bsi.Vuluz.dto.response;
+
+import lombok.Data;
+
+@Data
+public class PinUnlockResponse {
+    private String status;
+    private String message;
+    private String unlockToken;
+    private Long expiresIn;
+}
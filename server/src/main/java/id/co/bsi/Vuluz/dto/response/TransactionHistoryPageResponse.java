@@ -0,0 +1,15 @@
+package id.co.bsi.Vuluz.dto.response;
+
+import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TransactionHistoryPageResponse {
+    private List<TransactionHistoryResponse> data;
+    // pass back as "cursor" to fetch the next page; null on the last page
+    private String nextCursor;
+}
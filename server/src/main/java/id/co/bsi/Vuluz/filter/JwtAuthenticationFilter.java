@@ -1,7 +1,11 @@
 package id.co.bsi.Vuluz.filter;
 
 
+import id.co.bsi.Vuluz.service.TokenRevocationService;
+import id.co.bsi.Vuluz.service.UserStatusService;
+import id.co.bsi.Vuluz.utils.JwtPrincipal;
 import id.co.bsi.Vuluz.utils.JwtUtility;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -10,6 +14,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -18,6 +23,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -27,6 +33,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserStatusService userStatusService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
@@ -40,16 +52,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             jwt = authHeader.substring(7);
-            userName = jwtUtility.extractUsername(jwt);
+            // the only place the token is parsed; the claims travel on with the principal
+            Claims claims = jwtUtility.parseClaims(jwt);
+            if (jwtUtility.isScoped(claims)) {
+                // PIN unlock and similar tokens are not logins
+                throw new JwtException("Scoped token used as a bearer token");
+            }
+            // answered from memory; logging out never adds a query to the request path
+            if (tokenRevocationService.isRevoked(claims.getId())) {
+                sendErrorResponse(response, "JWT token revoked");
+                return;
+            }
+            userName = claims.getSubject();
 
             if (userName != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userName);
+                Long userId = claims.get("userId", Long.class);
+                // the signed claims are trusted as they are; no user lookup on the request path
+                Collection<? extends GrantedAuthority> authorities = jwtUtility.extractAuthorities(claims);
+                if (authorities == null) {
+                    // tokens issued before roles were embedded still go through the user store
+                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(userName);
+                    authorities = jwtUtility.validateToken(claims, userDetails) ? userDetails.getAuthorities() : null;
+                }
 
-                if (jwtUtility.validateToken(jwt, userDetails)) {
+                if (authorities != null && userStatusService.isActive(userId)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            new JwtPrincipal(userId, userName, claims.getId()),
                             null,
-                            userDetails.getAuthorities()
+                            authorities
                     );
 
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
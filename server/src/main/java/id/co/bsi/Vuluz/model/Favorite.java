@@ -4,11 +4,12 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 @Data
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = "favorite_user_id_wallet_number_key", columnNames = {"userId", "walletNumber"}))
 @Entity
 public class Favorite {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "favorite_seq")
+    @SequenceGenerator(name = "favorite_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
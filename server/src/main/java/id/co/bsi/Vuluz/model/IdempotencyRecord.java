@@ -0,0 +1,34 @@
+package id.co.bsi.Vuluz.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@Table(
+        uniqueConstraints = @UniqueConstraint(columnNames = {"userId", "idempotencyKey"}),
+        indexes = @Index(columnList = "expiresAt")
+)
+@Entity
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_record_seq")
+    @SequenceGenerator(name = "idempotency_record_seq", allocationSize = 50)
+    private Long id;
+
+    private Long userId;
+
+    private String idempotencyKey;
+
+    private String requestHash;
+
+    // null while the original request is still being processed
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    // also when the claim was taken: an incomplete claim past app.idempotency.processing-timeout is abandoned
+    private Date createdAt;
+    private Date expiresAt;
+}
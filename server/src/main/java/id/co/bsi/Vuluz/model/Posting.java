@@ -0,0 +1,46 @@
+package id.co.bsi.Vuluz.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// Ledger line: the debit or credit a journal entry applies to one wallet, with that wallet's balance right after it.
+@Data
+@Table(indexes = @Index(name = "posting_wallet_id_posted_at_idx", columnList = "walletId, postedAt DESC, id"))
+@Entity
+@Immutable
+public class Posting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posting_seq")
+    @SequenceGenerator(name = "posting_seq", allocationSize = 50)
+    private Long id;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transactionId", referencedColumnName = "id")
+    private Transaction transaction;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "walletId", referencedColumnName = "id")
+    private Wallet wallet;
+
+    @Enumerated(EnumType.STRING)
+    private PostingDirection direction;
+
+    @Column(precision = 20, scale = 2)
+    private BigDecimal amount;
+
+    @Column(precision = 20, scale = 2)
+    private BigDecimal balanceAfter;
+
+    private Date postedAt;
+}
@@ -0,0 +1,37 @@
+package id.co.bsi.Vuluz.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@Table(indexes = {@Index(columnList = "familyId"), @Index(columnList = "expiresAt")})
+@Entity
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_token_seq")
+    @SequenceGenerator(name = "refresh_token_seq", allocationSize = 50)
+    private Long id;
+
+    private Long userId;
+
+    // SHA-256 of the token; the token itself is only ever held by the client
+    @Column(unique = true)
+    private String tokenHash;
+
+    // shared by every token rotated from the same login
+    private String familyId;
+
+    private Date createdAt;
+    private Date expiresAt;
+
+    // set once the token has been exchanged for its successor
+    private Date usedAt;
+
+    // hash of that successor; within the reuse grace window it is the only token handed out again
+    private String replacedBy;
+
+    private boolean revoked;
+}
@@ -0,0 +1,20 @@
+package id.co.bsi.Vuluz.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@Table(indexes = {@Index(columnList = "expiresAt"), @Index(columnList = "revokedAt")})
+@Entity
+public class RevokedToken {
+
+    @Id
+    private String jti;
+
+    private Long userId;
+
+    private Date revokedAt;
+    private Date expiresAt;
+}
@@ -0,0 +1,8 @@
+package id.co.bsi.Vuluz.model;
+
+public enum RollupGranularity {
+    DAY,
+    WEEK,
+    MONTH,
+    QUARTER
+}
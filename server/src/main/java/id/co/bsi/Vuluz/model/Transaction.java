@@ -2,21 +2,28 @@ package id.co.bsi.Vuluz.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import org.antlr.v4.runtime.misc.NotNull;
+import org.hibernate.annotations.Immutable;
 
 import java.math.BigDecimal;
 import java.util.Date;
 
+// Journal entry: one row per transfer or top-up. The balance effect on each wallet is recorded in Posting.
 @Data
-@Table
+@Table(indexes = {
+        @Index(name = "transaction_from_wallet_number_idx", columnList = "fromWalletNumber"),
+        @Index(name = "transaction_to_wallet_number_idx", columnList = "toWalletNumber")
+})
 @Entity
+@Immutable
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", allocationSize = 50)
     private Long id;
 
-    private String transactionType;
+    @Enumerated(EnumType.STRING)
+    private TransactionType transactionType;
 
     @Column(precision = 20, scale = 2)
     private BigDecimal amount;
@@ -30,8 +37,4 @@ public class Transaction {
     private Date transactionDate;
     private String description;
 
-    @ManyToOne
-    @JoinColumn(name = "walletId", referencedColumnName = "id")
-    private Wallet wallet;
-
 }
@@ -0,0 +1,6 @@
+package id.co.bsi.Vuluz.model;
+
+public enum TransactionType {
+    TOP_UP,
+    TRANSFER
+}
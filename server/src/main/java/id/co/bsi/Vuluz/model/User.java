@@ -7,12 +7,13 @@ import org.antlr.v4.runtime.misc.NotNull;
 import java.util.List;
 
 @Data
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "users_email_key", columnList = "email", unique = true))
 @Entity
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", allocationSize = 50)
     private Long id;
 
     private String email;
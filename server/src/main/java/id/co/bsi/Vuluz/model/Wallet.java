@@ -16,7 +16,8 @@ import java.util.List;
 public class Wallet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_seq")
+    @SequenceGenerator(name = "wallet_seq", allocationSize = 50)
     private Long id;
 
     private String walletName;
@@ -30,13 +31,14 @@ public class Wallet {
     private Date createdAt;
     private Date updatedAt;
 
+    // only ever changed by WalletRepository.debit and credit
+    @Column(insertable = false, updatable = false)
+    private Long version;
+
     @OneToOne
     @JoinColumn(name = "userId", referencedColumnName = "id")
     private User user;
 
-    @OneToMany(mappedBy = "wallet", cascade = CascadeType.ALL)
-    private List<Transaction> transactions;
-
 //    @JsonIgnore
 //    @OneToMany(mappedBy = "fromWallet", cascade = CascadeType.ALL)
 //    private List<Favorite> favoritesGiven;
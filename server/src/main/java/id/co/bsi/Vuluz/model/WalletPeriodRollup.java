@@ -0,0 +1,36 @@
+package id.co.bsi.Vuluz.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Pre-aggregated income and expense of one wallet over one day, week, month or quarter.
+@Data
+@Table(
+        name = "wallet_period_rollup",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"walletId", "granularity", "periodStart"})
+)
+@Entity
+public class WalletPeriodRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_period_rollup_seq")
+    @SequenceGenerator(name = "wallet_period_rollup_seq", allocationSize = 50)
+    private Long id;
+
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    private RollupGranularity granularity;
+
+    // first day of the period: the day itself, Monday, the 1st of the month or of the quarter
+    private LocalDate periodStart;
+
+    @Column(precision = 20, scale = 2)
+    private BigDecimal income;
+
+    @Column(precision = 20, scale = 2)
+    private BigDecimal expense;
+}
@@ -0,0 +1,12 @@
+package id.co.bsi.Vuluz.repository;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+public interface BalanceView {
+    Long getWalletId();
+    BigDecimal getBalance();
+    Long getWalletNumber();
+    String getAccountName();
+    Date getUpdatedAt();
+}
@@ -0,0 +1,8 @@
+package id.co.bsi.Vuluz.repository;
+
+public interface CurrentAccount {
+    Long getUserId();
+    Long getWalletId();
+    Long getWalletNumber();
+    String getPinHash();
+}
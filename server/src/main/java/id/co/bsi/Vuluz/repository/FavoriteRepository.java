@@ -3,11 +3,20 @@ package id.co.bsi.Vuluz.repository;
 import id.co.bsi.Vuluz.model.Favorite;
 import id.co.bsi.Vuluz.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
     Optional<Favorite> findByUserAndWalletNumber(User user, Long walletNumber);
+
+    // favorites whose wallet no longer exists are still listed, without a name
+    @Query("SELECT f.id AS id, f.walletNumber AS walletNumber, w.walletName AS walletName, u.fullName AS ownerName " +
+            "FROM Favorite f LEFT JOIN Wallet w ON w.walletNumber = f.walletNumber LEFT JOIN w.user u " +
+            "WHERE f.user.id = :userId ORDER BY f.id")
+    List<FavoriteView> findViewsByUserId(@Param("userId") Long userId);
 }
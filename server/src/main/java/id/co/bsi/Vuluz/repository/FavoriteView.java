@@ -0,0 +1,8 @@
+package id.co.bsi.Vuluz.repository;
+
+public interface FavoriteView {
+    Long getId();
+    Long getWalletNumber();
+    String getWalletName();
+    String getOwnerName();
+}
@@ -0,0 +1,24 @@
+package id.co.bsi.Vuluz.repository;
+
+public enum HistorySortOrder {
+    DATE_DESC,
+    DATE_ASC,
+    AMOUNT_ASC,
+    AMOUNT_DESC,
+    AMOUNT_ASC_DATE_DESC,
+    AMOUNT_DESC_DATE_ASC,
+    DATE_ASC_AMOUNT_ASC,
+    DATE_DESC_AMOUNT_DESC;
+
+    // "amount_asc", "amount_desc", "date_asc", "date_desc", "amount_asc_date_desc", etc.; anything else is newest first
+    public static HistorySortOrder fromParam(String sortOrder) {
+        if (sortOrder != null) {
+            for (HistorySortOrder order : values()) {
+                if (order.name().equalsIgnoreCase(sortOrder)) {
+                    return order;
+                }
+            }
+        }
+        return DATE_DESC;
+    }
+}
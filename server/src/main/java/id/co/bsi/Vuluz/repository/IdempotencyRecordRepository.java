@@ -0,0 +1,39 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseBody = :responseBody WHERE r.id = :id")
+    int complete(@Param("id") Long id, @Param("responseBody") String responseBody);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.responseBody IS NULL")
+    int releaseIfIncomplete(@Param("id") Long id);
+
+    // the conditions are repeated so that a claim completed in the meantime is never removed
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id " +
+            "AND (r.expiresAt < :now OR (r.responseBody IS NULL AND r.createdAt < :claimedBefore))")
+    int releaseIfStale(@Param("id") Long id, @Param("now") Date now, @Param("claimedBefore") Date claimedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Date now);
+}
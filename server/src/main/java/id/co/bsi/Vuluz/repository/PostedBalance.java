@@ -0,0 +1,8 @@
+package id.co.bsi.Vuluz.repository;
+
+import java.math.BigDecimal;
+
+public interface PostedBalance {
+    BigDecimal getBalance();
+    Long getVersion();
+}
@@ -0,0 +1,31 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.PostingDirection;
+import id.co.bsi.Vuluz.model.TransactionType;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Data
+public class PostingHistoryCriteria {
+    private Long walletId;
+
+    private TransactionType transactionType;
+    private PostingDirection direction;
+
+    // half-open range [fromDate, toDate)
+    private Date fromDate;
+    private Date toDate;
+
+    private String search;
+
+    private HistorySortOrder sortOrder = HistorySortOrder.DATE_DESC;
+
+    // keyset position: the last row of the previous page, or null for the first page
+    private Date afterPostedAt;
+    private BigDecimal afterSignedAmount;
+    private Long afterId;
+
+    private int limit;
+}
@@ -0,0 +1,44 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.Posting;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PostingRepository extends JpaRepository<Posting, Long>, PostingRepositoryCustom {
+    List<Posting> findByWalletId(Long walletId);
+
+    @Query("SELECT p FROM Posting p JOIN FETCH p.transaction WHERE p.id = :postingId AND p.wallet.id = :walletId")
+    Optional<Posting> findWithTransactionByIdAndWalletId(@Param("postingId") Long postingId, @Param("walletId") Long walletId);
+
+    // [from, to) on postedAt keeps the predicate sargable, so it is a range scan on (wallet_id, posted_at)
+    @Query("SELECT p FROM Posting p JOIN FETCH p.transaction " +
+            "WHERE p.wallet.id = :walletId AND p.postedAt >= :from AND p.postedAt < :to " +
+            "ORDER BY p.postedAt, p.id")
+    List<Posting> findByWalletIdAndPostedAtRange(@Param("walletId") Long walletId,
+                                                 @Param("from") Date from,
+                                                 @Param("to") Date to);
+
+    @Query("SELECT " +
+            "COALESCE(SUM(CASE WHEN p.direction = id.co.bsi.Vuluz.model.PostingDirection.CREDIT THEN p.amount ELSE 0 END), 0) AS totalIncome, " +
+            "COALESCE(SUM(CASE WHEN p.direction = id.co.bsi.Vuluz.model.PostingDirection.DEBIT THEN p.amount ELSE 0 END), 0) AS totalExpense, " +
+            "COALESCE(SUM(CASE WHEN p.postedAt >= :periodStart AND p.postedAt < :periodEnd THEN " +
+            "CASE WHEN p.direction = id.co.bsi.Vuluz.model.PostingDirection.CREDIT THEN p.amount ELSE -p.amount END " +
+            "ELSE 0 END), 0) AS periodChange " +
+            "FROM Posting p WHERE p.wallet.id = :walletId")
+    PostingTotals sumTotals(@Param("walletId") Long walletId,
+                            @Param("periodStart") Date periodStart,
+                            @Param("periodEnd") Date periodEnd);
+
+    @Query("SELECT p.wallet.id AS walletId, " +
+            "SUM(CASE WHEN p.direction = id.co.bsi.Vuluz.model.PostingDirection.CREDIT THEN p.amount ELSE 0 END) AS totalIncome, " +
+            "SUM(CASE WHEN p.direction = id.co.bsi.Vuluz.model.PostingDirection.DEBIT THEN p.amount ELSE 0 END) AS totalExpense " +
+            "FROM Posting p GROUP BY p.wallet.id")
+    List<WalletTotals> sumByWallet();
+}
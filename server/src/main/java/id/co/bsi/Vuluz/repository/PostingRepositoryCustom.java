@@ -0,0 +1,9 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.Posting;
+
+import java.util.List;
+
+public interface PostingRepositoryCustom {
+    List<Posting> findHistoryPage(PostingHistoryCriteria criteria);
+}
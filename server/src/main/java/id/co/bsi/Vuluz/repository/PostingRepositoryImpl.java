@@ -0,0 +1,149 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.PostingDirection;
+import id.co.bsi.Vuluz.model.Transaction;
+import id.co.bsi.Vuluz.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class PostingRepositoryImpl implements PostingRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Posting> findHistoryPage(PostingHistoryCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Posting> query = cb.createQuery(Posting.class);
+        Root<Posting> posting = query.from(Posting.class);
+        Join<Posting, Transaction> transaction = (Join<Posting, Transaction>) posting.<Posting, Transaction>fetch("transaction");
+
+        Path<PostingDirection> direction = posting.get("direction");
+        Expression<BigDecimal> signedAmount = cb.<BigDecimal>selectCase()
+                .when(cb.equal(direction, PostingDirection.CREDIT), posting.get("amount"))
+                .otherwise(cb.neg(posting.get("amount")));
+        Path<Date> postedAt = posting.get("postedAt");
+        Path<Long> id = posting.get("id");
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(posting.get("wallet").get("id"), criteria.getWalletId()));
+
+        if (criteria.getTransactionType() != null) {
+            where.add(cb.equal(transaction.get("transactionType"), criteria.getTransactionType()));
+        }
+        if (criteria.getDirection() != null) {
+            where.add(cb.equal(direction, criteria.getDirection()));
+        }
+        if (criteria.getFromDate() != null) {
+            where.add(cb.greaterThanOrEqualTo(postedAt, criteria.getFromDate()));
+        }
+        if (criteria.getToDate() != null) {
+            where.add(cb.lessThan(postedAt, criteria.getToDate()));
+        }
+        if (criteria.getSearch() != null && !criteria.getSearch().isEmpty()) {
+            where.add(searchPredicate(cb, query, posting, transaction, direction, criteria.getSearch()));
+        }
+
+        List<Key> keys = keys(criteria.getSortOrder(), postedAt, signedAmount, id);
+        if (criteria.getAfterId() != null) {
+            where.add(keysetPredicate(cb, keys, criteria));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (Key key : keys) {
+            orders.add(key.descending ? cb.desc(key.expression) : cb.asc(key.expression));
+        }
+
+        query.select(posting).where(where.toArray(new Predicate[0])).orderBy(orders);
+        return entityManager.createQuery(query)
+                .setMaxResults(criteria.getLimit())
+                .getResultList();
+    }
+
+    private Predicate searchPredicate(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Posting> posting,
+                                      Join<Posting, Transaction> transaction, Path<PostingDirection> direction, String search) {
+        String pattern = "%" + search.toLowerCase() + "%";
+
+        // counterparty: the sender for incoming postings, the receiver for outgoing ones
+        Expression<Long> counterpartyWalletNumber = cb.<Long>selectCase()
+                .when(cb.equal(direction, PostingDirection.CREDIT), transaction.get("fromWalletNumber"))
+                .otherwise(transaction.get("toWalletNumber"));
+        Subquery<Long> counterparty = query.subquery(Long.class);
+        Root<User> user = counterparty.from(User.class);
+        counterparty.select(user.get("id")).where(
+                cb.equal(user.get("wallet").get("walletNumber"), counterpartyWalletNumber),
+                cb.like(cb.lower(user.get("fullName")), pattern)
+        );
+
+        return cb.or(
+                cb.like(cb.lower(transaction.get("description")), pattern),
+                cb.like(posting.get("amount").as(String.class), pattern),
+                cb.exists(counterparty)
+        );
+    }
+
+    // rows strictly after the cursor in sort order: k1 > v1 OR (k1 = v1 AND k2 > v2) OR ...
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate keysetPredicate(CriteriaBuilder cb, List<Key> keys, PostingHistoryCriteria criteria) {
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        for (Key key : keys) {
+            Comparable value = key.valueFrom(criteria);
+            List<Predicate> alternative = new ArrayList<>(equalPrefix);
+            alternative.add(key.descending ? cb.lessThan(key.expression, value) : cb.greaterThan(key.expression, value));
+            alternatives.add(cb.and(alternative.toArray(new Predicate[0])));
+            equalPrefix.add(cb.equal(key.expression, value));
+        }
+
+        // redundant bound on the leading key so the database can start the index range at the cursor
+        Key leading = keys.get(0);
+        Comparable leadingValue = leading.valueFrom(criteria);
+        Predicate bound = leading.descending
+                ? cb.lessThanOrEqualTo(leading.expression, leadingValue)
+                : cb.greaterThanOrEqualTo(leading.expression, leadingValue);
+
+        return cb.and(bound, cb.or(alternatives.toArray(new Predicate[0])));
+    }
+
+    private List<Key> keys(HistorySortOrder sortOrder, Path<Date> postedAt, Expression<BigDecimal> signedAmount, Path<Long> id) {
+        Key dateAsc = new Key(postedAt, false, KeyColumn.POSTED_AT);
+        Key dateDesc = new Key(postedAt, true, KeyColumn.POSTED_AT);
+        Key amountAsc = new Key(signedAmount, false, KeyColumn.SIGNED_AMOUNT);
+        Key amountDesc = new Key(signedAmount, true, KeyColumn.SIGNED_AMOUNT);
+        Key idAsc = new Key(id, false, KeyColumn.ID);
+        Key idDesc = new Key(id, true, KeyColumn.ID);
+
+        return switch (sortOrder) {
+            case DATE_ASC -> List.of(dateAsc, idAsc);
+            case AMOUNT_ASC -> List.of(amountAsc, idAsc);
+            case AMOUNT_DESC -> List.of(amountDesc, idDesc);
+            case AMOUNT_ASC_DATE_DESC -> List.of(amountAsc, dateDesc, idDesc);
+            case AMOUNT_DESC_DATE_ASC -> List.of(amountDesc, dateAsc, idAsc);
+            case DATE_ASC_AMOUNT_ASC -> List.of(dateAsc, amountAsc, idAsc);
+            case DATE_DESC_AMOUNT_DESC -> List.of(dateDesc, amountDesc, idDesc);
+            default -> List.of(dateDesc, idDesc);
+        };
+    }
+
+    private enum KeyColumn {
+        POSTED_AT, SIGNED_AMOUNT, ID
+    }
+
+    @SuppressWarnings("rawtypes")
+    private record Key(Expression<? extends Comparable> expression, boolean descending, KeyColumn column) {
+        Comparable<?> valueFrom(PostingHistoryCriteria criteria) {
+            return switch (column) {
+                case POSTED_AT -> criteria.getAfterPostedAt();
+                case SIGNED_AMOUNT -> criteria.getAfterSignedAmount();
+                case ID -> criteria.getAfterId();
+            };
+        }
+    }
+}
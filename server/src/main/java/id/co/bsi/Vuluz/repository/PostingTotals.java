@@ -0,0 +1,10 @@
+package id.co.bsi.Vuluz.repository;
+
+import java.math.BigDecimal;
+
+public interface PostingTotals {
+    BigDecimal getTotalIncome();
+    BigDecimal getTotalExpense();
+    // net of credits and debits posted inside the requested period
+    BigDecimal getPeriodChange();
+}
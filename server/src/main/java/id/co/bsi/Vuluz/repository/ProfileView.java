@@ -0,0 +1,14 @@
+package id.co.bsi.Vuluz.repository;
+
+import java.math.BigDecimal;
+
+public interface ProfileView {
+    String getFullName();
+    String getUserName();
+    String getEmail();
+    String getGender();
+    String getAvatarUrl();
+    String getWalletName();
+    Long getWalletNumber();
+    BigDecimal getWalletBalance();
+}
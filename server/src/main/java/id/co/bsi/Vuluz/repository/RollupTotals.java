@@ -0,0 +1,12 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.RollupGranularity;
+
+import java.math.BigDecimal;
+
+public interface RollupTotals {
+    Long getWalletId();
+    RollupGranularity getGranularity();
+    BigDecimal getTotalIncome();
+    BigDecimal getTotalExpense();
+}
@@ -2,8 +2,12 @@ package id.co.bsi.Vuluz.repository;
 
 import id.co.bsi.Vuluz.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     User findFirstByEmail(String email);
     Optional<User> findByWallet_WalletNumber(Long walletNumber);
+
+    @Query("SELECT w.walletNumber AS walletNumber, u.fullName AS fullName FROM Wallet w JOIN w.user u " +
+            "WHERE w.walletNumber IN :walletNumbers")
+    List<WalletOwnerName> findOwnerNamesByWalletNumbers(@Param("walletNumbers") Collection<Long> walletNumbers);
+
+    @Query("SELECT u.fullName AS fullName, u.userName AS userName, u.email AS email, u.gender AS gender, " +
+            "u.avatarUrl AS avatarUrl, w.walletName AS walletName, w.walletNumber AS walletNumber, w.balance AS walletBalance " +
+            "FROM User u JOIN u.wallet w WHERE u.id = :userId")
+    Optional<ProfileView> findProfileViewById(@Param("userId") Long userId);
 }
@@ -0,0 +1,6 @@
+package id.co.bsi.Vuluz.repository;
+
+public interface WalletOwnerName {
+    Long getWalletNumber();
+    String getFullName();
+}
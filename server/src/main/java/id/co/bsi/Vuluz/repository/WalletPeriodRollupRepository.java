@@ -0,0 +1,39 @@
+package id.co.bsi.Vuluz.repository;
+
+import id.co.bsi.Vuluz.model.RollupGranularity;
+import id.co.bsi.Vuluz.model.WalletPeriodRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface WalletPeriodRollupRepository extends JpaRepository<WalletPeriodRollup, Long> {
+    List<WalletPeriodRollup> findByWalletIdAndGranularity(Long walletId, RollupGranularity granularity);
+
+    List<WalletPeriodRollup> findByWalletIdAndGranularityAndPeriodStartBetween(
+            Long walletId, RollupGranularity granularity, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("UPDATE WalletPeriodRollup r SET r.income = r.income + :income, r.expense = r.expense + :expense " +
+            "WHERE r.walletId = :walletId AND r.granularity = :granularity AND r.periodStart = :periodStart")
+    int increment(@Param("walletId") Long walletId,
+                  @Param("granularity") RollupGranularity granularity,
+                  @Param("periodStart") LocalDate periodStart,
+                  @Param("income") BigDecimal income,
+                  @Param("expense") BigDecimal expense);
+
+    @Modifying
+    @Query("DELETE FROM WalletPeriodRollup r WHERE r.walletId = :walletId")
+    int deleteByWalletId(@Param("walletId") Long walletId);
+
+    @Query("SELECT r.walletId AS walletId, r.granularity AS granularity, " +
+            "SUM(r.income) AS totalIncome, SUM(r.expense) AS totalExpense " +
+            "FROM WalletPeriodRollup r GROUP BY r.walletId, r.granularity")
+    List<RollupTotals> sumByWalletAndGranularity();
+}
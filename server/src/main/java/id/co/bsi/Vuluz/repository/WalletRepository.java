@@ -1,13 +1,59 @@
 package id.co.bsi.Vuluz.repository;
 
 import id.co.bsi.Vuluz.model.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByWalletNumber(Long walletNumber);
     Optional<Wallet> findByUserId(Long userId);
+
+    @Query("SELECT u.id AS userId, w.id AS walletId, w.walletNumber AS walletNumber, u.pin AS pinHash " +
+            "FROM Wallet w JOIN w.user u WHERE u.id = :userId")
+    Optional<CurrentAccount> findCurrentAccount(@Param("userId") Long userId);
+
+    @Query("SELECT w.id AS walletId, w.balance AS balance, w.walletNumber AS walletNumber, u.fullName AS accountName, w.updatedAt AS updatedAt " +
+            "FROM Wallet w JOIN w.user u WHERE u.id = :userId")
+    Optional<BalanceView> findBalanceViewByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT w.id FROM Wallet w WHERE w.walletNumber = :walletNumber")
+    Optional<Long> findIdByWalletNumber(@Param("walletNumber") Long walletNumber);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id = :walletId")
+    Optional<Wallet> lockById(@Param("walletId") Long walletId);
+
+    @Query(value = "SELECT nextval('wallet_number_seq')", nativeQuery = true)
+    long nextWalletNumberSlot();
+
+    @Query(value = "SELECT issued FROM wallet_number_usage", nativeQuery = true)
+    long issuedWalletNumberSlots();
+
+    @Query("SELECT w.id FROM Wallet w")
+    List<Long> findAllIds();
+
+    @Query("SELECT w.balance FROM Wallet w WHERE w.id = :walletId")
+    BigDecimal findBalanceById(@Param("walletId") Long walletId);
+
+    @Query("SELECT w.balance AS balance, w.version AS version FROM Wallet w WHERE w.id = :walletId")
+    PostedBalance findPostedBalanceById(@Param("walletId") Long walletId);
+
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount, w.updatedAt = :updatedAt, w.version = w.version + 1 WHERE w.id = :walletId AND w.balance >= :amount")
+    int debit(@Param("walletId") Long walletId, @Param("amount") BigDecimal amount, @Param("updatedAt") Date updatedAt);
+
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount, w.updatedAt = :updatedAt, w.version = w.version + 1 WHERE w.id = :walletId")
+    int credit(@Param("walletId") Long walletId, @Param("amount") BigDecimal amount, @Param("updatedAt") Date updatedAt);
 }
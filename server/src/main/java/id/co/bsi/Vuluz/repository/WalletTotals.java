@@ -0,0 +1,9 @@
+package id.co.bsi.Vuluz.repository;
+
+import java.math.BigDecimal;
+
+public interface WalletTotals {
+    Long getWalletId();
+    BigDecimal getTotalIncome();
+    BigDecimal getTotalExpense();
+}
@@ -0,0 +1,13 @@
+package id.co.bsi.Vuluz.service;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// Tells every application node which wallets changed so each one can drop its cached reads.
+// A multi-node deployment registers its own @Primary implementation (e.g. over Redis pub/sub);
+// the in-memory one only reaches listeners in this JVM.
+public interface CacheInvalidationBus {
+    void publish(Collection<Long> walletIds);
+
+    void subscribe(Consumer<Collection<Long>> listener);
+}
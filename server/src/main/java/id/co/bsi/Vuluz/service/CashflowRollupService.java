@@ -0,0 +1,175 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.PostingDirection;
+import id.co.bsi.Vuluz.model.RollupGranularity;
+import id.co.bsi.Vuluz.model.WalletPeriodRollup;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.repository.RollupTotals;
+import id.co.bsi.Vuluz.repository.WalletPeriodRollupRepository;
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import id.co.bsi.Vuluz.repository.WalletTotals;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+@Slf4j
+@Service
+public class CashflowRollupService {
+    @Autowired
+    private WalletPeriodRollupRepository rollupRepository;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+
+    @Value("${app.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public CashflowRollupService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // rollups and postings must be compared as of the same instant
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+    }
+
+    public static LocalDate periodStart(LocalDate date, RollupGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case QUARTER -> date.withMonth((date.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+        };
+    }
+
+    // Called for every posting inside the transfer transaction. The caller already holds the
+    // wallet's row lock, so update-then-insert cannot race with another posting to the same wallet.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long walletId, PostingDirection direction, BigDecimal amount, Date postedAt) {
+        LocalDate date = postedAt.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        BigDecimal income = direction == PostingDirection.CREDIT ? amount : BigDecimal.ZERO;
+        BigDecimal expense = direction == PostingDirection.DEBIT ? amount : BigDecimal.ZERO;
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            LocalDate periodStart = periodStart(date, granularity);
+            if (rollupRepository.increment(walletId, granularity, periodStart, income, expense) == 0) {
+                rollupRepository.save(newRollup(walletId, granularity, periodStart, income, expense));
+            }
+        }
+    }
+
+    // Recomputes one wallet's rollups from its postings.
+    public void rebuild(Long walletId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // keeps transfers on this wallet out until the rebuilt rows are in place
+            walletRepository.lockById(walletId).orElseThrow(() -> new RuntimeException("Wallet not found"));
+            rollupRepository.deleteByWalletId(walletId);
+
+            Map<RollupGranularity, Map<LocalDate, WalletPeriodRollup>> rollups = new EnumMap<>(RollupGranularity.class);
+            for (Posting posting : postingRepository.findByWalletId(walletId)) {
+                LocalDate date = posting.getPostedAt().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+                boolean isIncoming = posting.getDirection() == PostingDirection.CREDIT;
+
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    WalletPeriodRollup rollup = rollups
+                            .computeIfAbsent(granularity, g -> new HashMap<>())
+                            .computeIfAbsent(periodStart(date, granularity),
+                                    start -> newRollup(walletId, granularity, start, BigDecimal.ZERO, BigDecimal.ZERO));
+                    if (isIncoming) {
+                        rollup.setIncome(rollup.getIncome().add(posting.getAmount()));
+                    } else {
+                        rollup.setExpense(rollup.getExpense().add(posting.getAmount()));
+                    }
+                }
+            }
+
+            for (Map<LocalDate, WalletPeriodRollup> periods : rollups.values()) {
+                rollupRepository.saveAll(periods.values());
+            }
+        });
+    }
+
+    public void rebuildAll() {
+        for (Long walletId : walletRepository.findAllIds()) {
+            rebuild(walletId);
+        }
+    }
+
+    // backfills the table the first time the application starts on a database that already has postings
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (backfillOnStartup && rollupRepository.count() == 0 && postingRepository.count() > 0) {
+            log.info("Backfilling cashflow rollups from postings");
+            rebuildAll();
+        }
+    }
+
+    // Returns the ids of wallets whose rollups, at any granularity, do not add up to their postings.
+    @Scheduled(cron = "${app.rollup.check-cron:0 30 3 * * *}")
+    public Set<Long> checkConsistency() {
+        Set<Long> mismatched = snapshotTemplate.execute(status -> {
+            Map<Long, WalletTotals> expected = new HashMap<>();
+            for (WalletTotals totals : postingRepository.sumByWallet()) {
+                expected.put(totals.getWalletId(), totals);
+            }
+
+            Set<Long> result = new TreeSet<>();
+            Map<Long, Set<RollupGranularity>> seen = new HashMap<>();
+            for (RollupTotals totals : rollupRepository.sumByWalletAndGranularity()) {
+                seen.computeIfAbsent(totals.getWalletId(), id -> EnumSet.noneOf(RollupGranularity.class))
+                        .add(totals.getGranularity());
+                WalletTotals raw = expected.get(totals.getWalletId());
+                if (raw == null
+                        || raw.getTotalIncome().compareTo(totals.getTotalIncome()) != 0
+                        || raw.getTotalExpense().compareTo(totals.getTotalExpense()) != 0) {
+                    result.add(totals.getWalletId());
+                }
+            }
+            for (Long walletId : expected.keySet()) {
+                Set<RollupGranularity> granularities = seen.get(walletId);
+                if (granularities == null || granularities.size() != RollupGranularity.values().length) {
+                    result.add(walletId);
+                }
+            }
+            return result;
+        });
+
+        if (!mismatched.isEmpty()) {
+            log.warn("Cashflow rollups do not match postings for wallets {}", mismatched);
+        }
+        return mismatched;
+    }
+
+    private WalletPeriodRollup newRollup(Long walletId, RollupGranularity granularity, LocalDate periodStart,
+                                         BigDecimal income, BigDecimal expense) {
+        WalletPeriodRollup rollup = new WalletPeriodRollup();
+        rollup.setWalletId(walletId);
+        rollup.setGranularity(granularity);
+        rollup.setPeriodStart(periodStart);
+        rollup.setIncome(income);
+        rollup.setExpense(expense);
+        return rollup;
+    }
+}
@@ -3,21 +3,33 @@ package id.co.bsi.Vuluz.service;
 import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
 import id.co.bsi.Vuluz.dto.TransactionSummaryResponse;
 import id.co.bsi.Vuluz.dto.response.BalanceResponse;
+import id.co.bsi.Vuluz.dto.response.TransactionHistoryPageResponse;
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.PostingDirection;
 import id.co.bsi.Vuluz.model.Transaction;
-import id.co.bsi.Vuluz.model.User;
-import id.co.bsi.Vuluz.model.Wallet;
-import id.co.bsi.Vuluz.repository.FavoriteRepository;
-import id.co.bsi.Vuluz.repository.TransactionRepository;
+import id.co.bsi.Vuluz.model.TransactionType;
+import id.co.bsi.Vuluz.model.RollupGranularity;
+import id.co.bsi.Vuluz.model.WalletPeriodRollup;
+import id.co.bsi.Vuluz.repository.BalanceView;
+import id.co.bsi.Vuluz.repository.HistorySortOrder;
+import id.co.bsi.Vuluz.repository.PostingHistoryCriteria;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.repository.PostingTotals;
 import id.co.bsi.Vuluz.repository.UserRepository;
+import id.co.bsi.Vuluz.repository.WalletOwnerName;
+import id.co.bsi.Vuluz.repository.WalletPeriodRollupRepository;
 import id.co.bsi.Vuluz.repository.WalletRepository;
+import id.co.bsi.Vuluz.utils.CurrentAccountContext;
 import id.co.bsi.Vuluz.utils.SecurityUtility;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.temporal.WeekFields;
 import java.util.*;
@@ -32,175 +44,225 @@ public class DashboardService {
     private WalletRepository walletRepository;
 
     @Autowired
-    private TransactionRepository transactionRepository;
+    private PostingRepository postingRepository;
 
     @Autowired
     private SecurityUtility securityUtility;
 
     @Autowired
-    private FavoriteRepository favoriteRepository;
+    private CurrentAccountContext currentAccountContext;
 
-    private String getAccountNameByWalletNumber(Long walletNumber) {
-        if (walletNumber == null) return "Unknown";
-        return userRepository.findByWallet_WalletNumber(walletNumber)
-                .map(User::getFullName)
-                .orElse("Unknown");
+    @Autowired
+    private WalletReadCache walletReadCache;
+
+    @Autowired
+    private WalletPeriodRollupRepository walletPeriodRollupRepository;
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // one IN query per page instead of one lookup per row
+    private Map<Long, String> getAccountNamesByWalletNumbers(Collection<Long> walletNumbers) {
+        Map<Long, String> names = new HashMap<>();
+        if (walletNumbers.isEmpty()) return names;
+        for (WalletOwnerName owner : userRepository.findOwnerNamesByWalletNumbers(walletNumbers)) {
+            names.put(owner.getWalletNumber(), owner.getFullName());
+        }
+        return names;
+    }
+
+    private Long counterpartyWalletNumber(Posting posting) {
+        Transaction tx = posting.getTransaction();
+        return posting.getDirection() == PostingDirection.CREDIT ? tx.getFromWalletNumber() : tx.getToWalletNumber();
     }
 
     @Transactional
-    public List<TransactionHistoryResponse> getTransactionHistory(
-            Long userId,
+    public TransactionHistoryPageResponse getTransactionHistory(
             String transactionType,
             LocalDate fromDate,
             LocalDate toDate,
             String search,
-            String sortOrder  // "amount_asc", "amount_desc", "date_asc", "date_desc", "amount_asc_date_desc", etc.
+            String sortOrder,  // "amount_asc", "amount_desc", "date_asc", "date_desc", "amount_asc_date_desc", etc.
+            int size,
+            String cursor
     ) {
-        User user = userRepository.findById(userId).orElseThrow();
-        Wallet wallet = user.getWallet();
-
-        List<Transaction> transactions = transactionRepository.findByWallet(wallet);
-
-        Comparator<TransactionHistoryResponse> comparator = null;
-
-        if (sortOrder != null) {
-            if (sortOrder.equals("amount_asc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getAmount);
-            } else if (sortOrder.equals("amount_desc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getAmount).reversed();
-            } else if (sortOrder.equals("date_asc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getTransactionDate);
-            } else if (sortOrder.equals("date_desc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getTransactionDate).reversed();
-            } else if (sortOrder.equals("amount_asc_date_desc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getAmount)
-                        .thenComparing(TransactionHistoryResponse::getTransactionDate, Comparator.reverseOrder());
-            } else if (sortOrder.equals("amount_desc_date_asc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getAmount, Comparator.reverseOrder())
-                        .thenComparing(TransactionHistoryResponse::getTransactionDate);
-            } else if (sortOrder.equals("date_asc_amount_asc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getTransactionDate)
-                        .thenComparing(TransactionHistoryResponse::getAmount);
-            } else if (sortOrder.equals("date_desc_amount_desc")) {
-                comparator = Comparator.comparing(TransactionHistoryResponse::getTransactionDate, Comparator.reverseOrder())
-                        .thenComparing(TransactionHistoryResponse::getAmount, Comparator.reverseOrder());
-            }
+        Long walletId = currentAccountContext.get().getWalletId();
+
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+
+        PostingHistoryCriteria criteria = new PostingHistoryCriteria();
+        criteria.setWalletId(walletId);
+        criteria.setSortOrder(HistorySortOrder.fromParam(sortOrder));
+        criteria.setSearch(search);
+        // one extra row tells us whether there is a next page
+        criteria.setLimit(pageSize + 1);
+        if (!applyTypeFilter(criteria, transactionType)) {
+            return new TransactionHistoryPageResponse(new ArrayList<>(), null);
+        }
+        if (fromDate != null) {
+            criteria.setFromDate(toDate(fromDate));
+        }
+        if (toDate != null) {
+            criteria.setToDate(toDate(toDate.plusDays(1)));
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            decodeCursor(cursor, criteria);
         }
 
-        if (comparator == null) {
-            comparator = Comparator.comparing(TransactionHistoryResponse::getTransactionDate, Comparator.reverseOrder());
+        List<Posting> postings = postingRepository.findHistoryPage(criteria);
+        boolean hasMore = postings.size() > pageSize;
+        if (hasMore) {
+            postings = postings.subList(0, pageSize);
         }
 
-        return transactions.stream()
-                .map(tx -> {
-                    boolean isIncoming = tx.getToWalletNumber() != null && tx.getToWalletNumber().equals(wallet.getWalletNumber());
-                    String accountName = getAccountNameByWalletNumber(isIncoming ? tx.getFromWalletNumber() : tx.getToWalletNumber());
-                    BigDecimal amount = isIncoming ? tx.getAmount() : tx.getAmount().negate();
+        List<TransactionHistoryResponse> data = toHistoryResponses(postings);
+
+        String nextCursor = hasMore ? encodeCursor(postings.get(postings.size() - 1)) : null;
+        return new TransactionHistoryPageResponse(data, nextCursor);
+    }
+
+    // every posting of the current wallet in one calendar month, oldest first
+    public List<TransactionHistoryResponse> getMonthlyStatement(YearMonth month) {
+        List<Posting> postings = postingRepository.findByWalletIdAndPostedAtRange(
+                currentAccountContext.get().getWalletId(), toDate(month.atDay(1)), toDate(month.plusMonths(1).atDay(1)));
+        return toHistoryResponses(postings);
+    }
+
+    // for the wallet stream only; a posting of another wallet is not found
+    TransactionHistoryResponse getHistoryEntry(Long walletId, Long postingId) {
+        Posting posting = postingRepository.findWithTransactionByIdAndWalletId(postingId, walletId)
+                .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        return toHistoryResponses(List.of(posting)).get(0);
+    }
+
+    private List<TransactionHistoryResponse> toHistoryResponses(List<Posting> postings) {
+        Map<Long, String> accountNames = getAccountNamesByWalletNumbers(postings.stream()
+                .map(this::counterpartyWalletNumber)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        return postings.stream()
+                .map(posting -> {
+                    Transaction tx = posting.getTransaction();
+                    String accountName = accountNames.getOrDefault(counterpartyWalletNumber(posting), "Unknown");
 
                     return new TransactionHistoryResponse(
                             tx.getId(),
-                            tx.getTransactionDate(),
-                            tx.getTransactionType(),
+                            posting.getPostedAt(),
+                            getTransactionLabel(tx.getTransactionType(), posting.getDirection()),
                             tx.getDescription(),
                             accountName,
-                            amount
+                            signedAmount(posting)
                     );
                 })
-                .filter(tx -> transactionType.isEmpty() || tx.getTransactionType().equalsIgnoreCase(transactionType))
-                .filter(tx -> {
-                    if (fromDate != null) {
-                        LocalDate txDate = toLocalDate(tx.getTransactionDate());
-                        return !txDate.isBefore(fromDate);
-                    }
-                    return true;
-                })
-                .filter(tx -> {
-                    if (toDate != null) {
-                        LocalDate txDate = toLocalDate(tx.getTransactionDate());
-                        return !txDate.isAfter(toDate);
-                    }
-                    return true;
-                })
-                .filter(tx -> search.isEmpty() || tx.getAccount().toLowerCase().
-                        contains(search.toLowerCase()) || tx.getDescription().toLowerCase().
-                        contains(search.toLowerCase()) || tx.getTransactionType().toLowerCase().
-                        contains(search.toLowerCase()) || tx.getAmount().toString().
-                        contains(search.toLowerCase()) || tx.getTransactionDate().toString().
-                        contains(search.toLowerCase()))
-                .sorted(comparator)
                 .collect(Collectors.toList());
     }
 
-    private LocalDate toLocalDate(Date date) {
-        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    // returns false when the type can never match, e.g. an unknown label
+    private boolean applyTypeFilter(PostingHistoryCriteria criteria, String transactionType) {
+        if (transactionType == null || transactionType.isEmpty()) {
+            return true;
+        }
+        switch (transactionType.trim().toUpperCase().replace(' ', '_')) {
+            case "TOP_UP":
+                criteria.setTransactionType(TransactionType.TOP_UP);
+                return true;
+            case "TRANSFER_IN":
+                criteria.setTransactionType(TransactionType.TRANSFER);
+                criteria.setDirection(PostingDirection.CREDIT);
+                return true;
+            case "TRANSFER_OUT":
+                criteria.setTransactionType(TransactionType.TRANSFER);
+                criteria.setDirection(PostingDirection.DEBIT);
+                return true;
+            default:
+                return false;
+        }
     }
 
-    public BalanceResponse getBalance() {
-        Long currentUserId = securityUtility.getCurrentUserId();
-        User user = userRepository.findById(currentUserId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    private BigDecimal signedAmount(Posting posting) {
+        return posting.getDirection() == PostingDirection.CREDIT ? posting.getAmount() : posting.getAmount().negate();
+    }
+
+    // the cursor is the sort key of the last row returned: postedAt millis, signed amount and posting id
+    private String encodeCursor(Posting last) {
+        String raw = last.getPostedAt().getTime() + "|" + signedAmount(last).toPlainString() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        Wallet wallet = user.getWallet();
-        if (wallet == null) {
-            throw new RuntimeException("Wallet not found for the user");
+    private void decodeCursor(String cursor, PostingHistoryCriteria criteria) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            criteria.setAfterPostedAt(new Date(Long.parseLong(parts[0])));
+            criteria.setAfterSignedAmount(new BigDecimal(parts[1]));
+            criteria.setAfterId(Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
+    }
+
+    private Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private String getTransactionLabel(TransactionType type, PostingDirection direction) {
+        if (type == TransactionType.TOP_UP) {
+            return "Top Up";
+        }
+        return direction == PostingDirection.CREDIT ? "Transfer In" : "Transfer Out";
+    }
+
+    public BalanceResponse getBalance() {
+        Long userId = securityUtility.getCurrentUserId();
+        Long walletId = walletReadCache.cachedWalletId(userId);
+        if (walletId == null) {
+            // first poll: one query, and the wallet id is kept for the cached path
+            BalanceView view = findBalanceView(userId);
+            walletReadCache.rememberWalletId(userId, view.getWalletId());
+            return toBalanceResponse(view);
+        }
+        return walletReadCache.balance(walletId, id -> toBalanceResponse(findBalanceView(userId)));
+    }
 
+    private BalanceView findBalanceView(Long userId) {
+        // polled constantly, so only the columns the response needs are read
+        return walletRepository.findBalanceViewByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found for the user"));
+    }
+
+    private BalanceResponse toBalanceResponse(BalanceView view) {
         BalanceResponse response = new BalanceResponse();
-        response.setBalance(wallet.getBalance());
-        response.setWalletNumber(wallet.getWalletNumber());
-        response.setAccountName(user.getFullName());
-        response.setLastUpdated(wallet.getUpdatedAt());
+        response.setBalance(view.getBalance());
+        response.setWalletNumber(view.getWalletNumber());
+        response.setAccountName(view.getAccountName());
+        response.setLastUpdated(view.getUpdatedAt());
         response.setMessage("Balance retrieved successfully");
         response.setStatus("Success");
 
         return response;
     }
 
-    public TransactionSummaryResponse getTransactionSummary() {
-        Long userId = securityUtility.getCurrentUserId();
-        User user = userRepository.findById(userId).orElseThrow();
-        Wallet wallet = user.getWallet();
-        Long walletNumber = wallet.getWalletNumber();
-
-        List<Transaction> transactions = transactionRepository.findByWallet(wallet);
+    public Long getCurrentWalletId() {
+        return walletReadCache.walletIdOf(securityUtility.getCurrentUserId(),
+                () -> currentAccountContext.get().getWalletId());
+    }
 
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
+    public TransactionSummaryResponse getTransactionSummary() {
+        return walletReadCache.summary(getCurrentWalletId(), this::loadTransactionSummary);
+    }
 
+    private TransactionSummaryResponse loadTransactionSummary(Long walletId) {
         // Ambil saldo sekarang
-        BigDecimal currentBalance = wallet.getBalance() != null ? wallet.getBalance() : BigDecimal.ZERO;
+        BigDecimal balance = walletRepository.findBalanceById(walletId);
+        BigDecimal currentBalance = balance != null ? balance : BigDecimal.ZERO;
 
-        // Hitung transaksi bulan lalu
-        LocalDate now = LocalDate.now();
-        LocalDate previousMonthStart = now.minusMonths(1).withDayOfMonth(1);
-        LocalDate previousMonthEnd = previousMonthStart.withDayOfMonth(previousMonthStart.lengthOfMonth());
-
-        BigDecimal balanceChange = BigDecimal.ZERO;
-
-        for (Transaction tx : transactions) {
-            String type = tx.getTransactionType();
-            boolean isIncoming = "Top Up".equalsIgnoreCase(type) ||
-                    ("Transfer In".equalsIgnoreCase(type) && walletNumber.equals(tx.getToWalletNumber()));
-            boolean isOutgoing = "Transfer Out".equalsIgnoreCase(type) && walletNumber.equals(tx.getFromWalletNumber());
-
-            if (isIncoming) {
-                totalIncome = totalIncome.add(tx.getAmount());
-            } else if (isOutgoing) {
-                totalExpense = totalExpense.add(tx.getAmount());
-            }
-
-            // Hitung perubahan balance bulan lalu
-            LocalDate txDate = toLocalDate(tx.getTransactionDate());
-            if ((txDate.isEqual(previousMonthStart) || txDate.isAfter(previousMonthStart)) &&
-                    (txDate.isEqual(previousMonthEnd) || txDate.isBefore(previousMonthEnd))) {
-
-                if (isIncoming) {
-                    balanceChange = balanceChange.add(tx.getAmount());
-                } else if (isOutgoing) {
-                    balanceChange = balanceChange.subtract(tx.getAmount());
-                }
-            }
-        }
+        // Hitung transaksi bulan lalu: [awal bulan lalu, awal bulan ini)
+        LocalDate thisMonthStart = LocalDate.now().withDayOfMonth(1);
+        PostingTotals totals = postingRepository.sumTotals(
+                walletId, toDate(thisMonthStart.minusMonths(1)), toDate(thisMonthStart));
+
+        BigDecimal totalIncome = totals.getTotalIncome();
+        BigDecimal totalExpense = totals.getTotalExpense();
+        BigDecimal balanceChange = totals.getPeriodChange();
 
         BigDecimal previousMonthBalance = currentBalance.subtract(balanceChange);
         BigDecimal netIncome = totalIncome.subtract(totalExpense);
@@ -216,11 +278,7 @@ public class DashboardService {
     }
 
     public List<Map<String, Object>> getCashflowData(String period) {
-        Long userId = securityUtility.getCurrentUserId();
-        User user = userRepository.findById(userId).orElseThrow();
-        Wallet wallet = user.getWallet();
-
-        List<Transaction> transactions = transactionRepository.findByWallet(wallet);
+        Long walletId = currentAccountContext.get().getWalletId();
 
         Map<String, BigDecimal> incomeMap = new HashMap<>();
         Map<String, BigDecimal> expenseMap = new HashMap<>();
@@ -228,38 +286,34 @@ public class DashboardService {
         LocalDate now = LocalDate.now();
         WeekFields weekFields = WeekFields.of(DayOfWeek.MONDAY, 1);
 
+        List<WalletPeriodRollup> rollups;
+        if ("daily".equalsIgnoreCase(period)) {
+            // Jika daily, hanya minggu ini: Senin sampai Minggu
+            LocalDate startOfWeek = now.with(weekFields.dayOfWeek(), 1); // Monday
+            LocalDate endOfWeek = now.with(weekFields.dayOfWeek(), 7);   // Sunday
+            rollups = walletPeriodRollupRepository.findByWalletIdAndGranularityAndPeriodStartBetween(
+                    walletId, RollupGranularity.DAY, startOfWeek, endOfWeek);
+        } else if ("weekly".equalsIgnoreCase(period)) {
+            rollups = walletPeriodRollupRepository.findByWalletIdAndGranularity(walletId, RollupGranularity.WEEK);
+        } else if ("monthly".equalsIgnoreCase(period)) {
+            rollups = walletPeriodRollupRepository.findByWalletIdAndGranularity(walletId, RollupGranularity.MONTH);
+        } else if ("quarterly".equalsIgnoreCase(period)) {
+            rollups = walletPeriodRollupRepository.findByWalletIdAndGranularity(walletId, RollupGranularity.QUARTER);
+        } else {
+            throw new IllegalArgumentException("Invalid period. Use 'daily', 'weekly', 'monthly', or 'quarterly'.");
+        }
 
-        // Jika daily, tentukan awal minggu (Senin) dan akhir minggu (Minggu)
-        LocalDate startOfWeek = now.with(weekFields.dayOfWeek(), 1); // Monday
-        LocalDate endOfWeek = now.with(weekFields.dayOfWeek(), 7);   // Sunday
-
-        for (Transaction tx : transactions) {
-            LocalDate txDate = toLocalDate(tx.getTransactionDate());
-            String key = "";
-
-            if ("daily".equalsIgnoreCase(period)) {
-                if (txDate.isBefore(startOfWeek) || txDate.isAfter(endOfWeek)) {
-                    continue; // Lewati transaksi di luar minggu ini
-                }
-                key = txDate.getDayOfWeek().toString(); // MONDAY, TUESDAY, etc
-            } else if ("weekly".equalsIgnoreCase(period)) {
-                int week = txDate.get(weekFields.weekOfWeekBasedYear());
-                key = "Week " + week;
-            } else if ("monthly".equalsIgnoreCase(period)) {
-                key = txDate.getMonth().toString().substring(0, 3); // JAN, FEB, etc
-            } else if ("quarterly".equalsIgnoreCase(period)) {
-                int quarter = (txDate.getMonthValue() - 1) / 3 + 1;
-                key = "Q" + quarter;
-            } else {
-                throw new IllegalArgumentException("Invalid period. Use 'daily', 'weekly', 'monthly', or 'quarterly'.");
-            }
-
-            if ("Top Up".equalsIgnoreCase(tx.getTransactionType()) ||
-                    ("Transfer In".equalsIgnoreCase(tx.getTransactionType()) && wallet.getWalletNumber().equals(tx.getToWalletNumber()))) {
-                incomeMap.put(key, incomeMap.getOrDefault(key, BigDecimal.ZERO).add(tx.getAmount()));
-            } else if ("Transfer Out".equalsIgnoreCase(tx.getTransactionType()) && wallet.getWalletNumber().equals(tx.getFromWalletNumber())) {
-                expenseMap.put(key, expenseMap.getOrDefault(key, BigDecimal.ZERO).add(tx.getAmount()));
-            }
+        for (WalletPeriodRollup rollup : rollups) {
+            LocalDate periodStart = rollup.getPeriodStart();
+            String key = switch (rollup.getGranularity()) {
+                case DAY -> periodStart.getDayOfWeek().toString(); // MONDAY, TUESDAY, etc
+                case WEEK -> "Week " + periodStart.get(weekFields.weekOfWeekBasedYear());
+                case MONTH -> periodStart.getMonth().toString().substring(0, 3); // JAN, FEB, etc
+                case QUARTER -> "Q" + ((periodStart.getMonthValue() - 1) / 3 + 1);
+            };
+
+            incomeMap.merge(key, rollup.getIncome(), BigDecimal::add);
+            expenseMap.merge(key, rollup.getExpense(), BigDecimal::add);
         }
 
         // Jika daily, pastikan semua hari Senin-Minggu ada walaupun 0
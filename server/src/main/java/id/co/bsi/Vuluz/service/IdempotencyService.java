@@ -0,0 +1,182 @@
+package id.co.bsi.Vuluz.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import id.co.bsi.Vuluz.model.IdempotencyRecord;
+import id.co.bsi.Vuluz.repository.IdempotencyRecordRepository;
+import id.co.bsi.Vuluz.utils.SecurityUtility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Function;
+
+@Service
+public class IdempotencyService {
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private SecurityUtility securityUtility;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Duration ttl;
+
+    // an incomplete claim older than this belongs to a request that died, and the key may be claimed again
+    private final Duration processingTimeout;
+
+    // front cache of completed outcomes so that a burst of client retries does not reach the database
+    private final Cache<String, StoredResponse> completed;
+
+    public IdempotencyService(@Value("${app.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${app.idempotency.processing-timeout:1m}") Duration processingTimeout,
+                              @Value("${app.idempotency.cache-size:10000}") long cacheSize) {
+        this.ttl = ttl;
+        this.processingTimeout = processingTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // the action gets the claim id (null without a key) and must hand it to the TransferEngine, which
+    // completes the claim in the same transaction as the postings
+    public <T> T execute(String idempotencyKey, String operation, Object request, Class<T> responseType,
+                         Function<Long, T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.apply(null);
+        }
+        if (idempotencyKey.length() > 255) {
+            throw new RuntimeException("Idempotency-Key is too long");
+        }
+
+        Long userId = securityUtility.getCurrentUserId();
+        String requestHash = fingerprint(operation, request);
+        String cacheKey = userId + ":" + idempotencyKey;
+
+        Date now = new Date();
+        StoredResponse cached = completed.getIfPresent(cacheKey);
+        if (cached != null && cached.expiresAt().after(now)) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (!isStale(record, now)) {
+                return replay(record, cacheKey, requestHash, responseType);
+            }
+            // Expired, or claimed by a request that died before its engine transaction committed. The
+            // row is replaced rather than reused, so if that request is still alive its completion finds
+            // no claim and its transfer rolls back.
+            completed.invalidate(cacheKey);
+            idempotencyRecordRepository.releaseIfStale(record.getId(), now, new Date(now.getTime() - processingTimeout.toMillis()));
+        }
+
+        IdempotencyRecord claim = new IdempotencyRecord();
+        claim.setUserId(userId);
+        claim.setIdempotencyKey(idempotencyKey);
+        claim.setRequestHash(requestHash);
+        claim.setCreatedAt(now);
+        claim.setExpiresAt(new Date(now.getTime() + ttl.toMillis()));
+        try {
+            claim = idempotencyRecordRepository.saveAndFlush(claim);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request with the same key won the claim
+            return replay(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> e), cacheKey, requestHash, responseType);
+        }
+
+        T response;
+        try {
+            response = action.apply(claim.getId());
+        } catch (RuntimeException e) {
+            // a claim without an outcome moved no money, so the client may retry the key. Once the engine's
+            // transaction committed the claim holds its outcome and is kept, even if something failed afterwards.
+            idempotencyRecordRepository.releaseIfIncomplete(claim.getId());
+            throw e;
+        }
+
+        completed.put(cacheKey, new StoredResponse(requestHash, toJson(response), claim.getExpiresAt()));
+        return response;
+    }
+
+    // joins the caller's transaction
+    public void complete(Long claimId, Object response) {
+        if (idempotencyRecordRepository.complete(claimId, toJson(response)) == 0) {
+            throw new IllegalStateException("Idempotency claim " + claimId + " no longer exists");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteExpired(new Date());
+    }
+
+    private boolean isStale(IdempotencyRecord record, Date now) {
+        if (record.getExpiresAt().before(now)) {
+            return true;
+        }
+        return record.getResponseBody() == null
+                && record.getCreatedAt().getTime() + processingTimeout.toMillis() < now.getTime();
+    }
+
+    private <T> T replay(IdempotencyRecord record, String cacheKey, String requestHash, Class<T> responseType) {
+        if (record.getResponseBody() == null) {
+            if (!record.getRequestHash().equals(requestHash)) {
+                throw new RuntimeException("Idempotency-Key was already used for a different request");
+            }
+            throw new RuntimeException("A request with this Idempotency-Key is still being processed");
+        }
+        StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseBody(), record.getExpiresAt());
+        completed.put(cacheKey, stored);
+        return replay(stored, requestHash, responseType);
+    }
+
+    private <T> T replay(StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new RuntimeException("Idempotency-Key was already used for a different request");
+        }
+        try {
+            return objectMapper.readValue(stored.responseBody(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, String responseBody, Date expiresAt) {
+    }
+}
@@ -0,0 +1,25 @@
+package id.co.bsi.Vuluz.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+@Component
+public class InMemoryCacheInvalidationBus implements CacheInvalidationBus {
+    private final List<Consumer<Collection<Long>>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Collection<Long> walletIds) {
+        for (Consumer<Collection<Long>> listener : listeners) {
+            listener.accept(walletIds);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Collection<Long>> listener) {
+        listeners.add(listener);
+    }
+}
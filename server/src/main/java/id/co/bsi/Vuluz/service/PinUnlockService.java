@@ -0,0 +1,100 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.dto.request.PinUnlockRequest;
+import id.co.bsi.Vuluz.dto.response.PinUnlockResponse;
+import id.co.bsi.Vuluz.repository.CurrentAccount;
+import id.co.bsi.Vuluz.utils.CurrentAccountContext;
+import id.co.bsi.Vuluz.utils.JwtUtility;
+import id.co.bsi.Vuluz.utils.SecurityUtility;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+
+// Verifies the PIN once with BCrypt and hands out a short-lived signed token that stands in for it,
+// so the following transfers and top ups only cost an HMAC check.
+@Service
+public class PinUnlockService {
+    static final String SCOPE = "pin-unlock";
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtility jwtUtility;
+
+    @Autowired
+    private CurrentAccountContext currentAccountContext;
+
+    @Autowired
+    private SecurityUtility securityUtility;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${app.pin-unlock.ttl:5m}")
+    private Duration ttl;
+
+    public PinUnlockResponse unlock(PinUnlockRequest pinUnlockRequest) {
+        CurrentAccount account = currentAccountContext.get();
+
+        if (pinUnlockRequest.getPin() == null) {
+            throw new RuntimeException("Input your pin");
+        }
+
+        if (account.getPinHash() == null || !passwordEncoder.matches(pinUnlockRequest.getPin(), account.getPinHash())) {
+            throw new RuntimeException("Invalid PIN");
+        }
+
+        String sessionId = securityUtility.getCurrentTokenId();
+        if (sessionId == null) {
+            throw new RuntimeException("Invalid token");
+        }
+
+        PinUnlockResponse response = new PinUnlockResponse();
+        response.setStatus("Success");
+        response.setMessage("PIN unlocked");
+        response.setUnlockToken(jwtUtility.generateScopedToken(account.getUserId(), SCOPE,
+                Map.of("pin", fingerprint(account.getPinHash()), "sid", sessionId), ttl));
+        response.setExpiresIn(ttl.toSeconds());
+        return response;
+    }
+
+    // True when the token was issued to this account for its current PIN, has not expired, and the
+    // login it was unlocked from has not logged out.
+    public boolean isUnlocked(CurrentAccount account, String unlockToken) {
+        if (unlockToken == null || unlockToken.isBlank() || account.getPinHash() == null) {
+            return false;
+        }
+        Claims claims;
+        try {
+            claims = jwtUtility.parseClaims(unlockToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+        // the PIN fingerprint ties the token to the hash it was issued for, so changing the PIN revokes it
+        return SCOPE.equals(claims.get("scope"))
+                && account.getUserId().equals(claims.get("userId", Long.class))
+                && fingerprint(account.getPinHash()).equals(claims.get("pin"))
+                && claims.get("sid") instanceof String sessionId
+                && !tokenRevocationService.isRevoked(sessionId);
+    }
+
+    private String fingerprint(String pinHash) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(pinHash.getBytes(StandardCharsets.UTF_8)), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -4,48 +4,47 @@ import id.co.bsi.Vuluz.dto.request.EditProfileRequest;
 import id.co.bsi.Vuluz.dto.response.EditProfileResponse;
 import id.co.bsi.Vuluz.dto.response.ProfileResponse;
 import id.co.bsi.Vuluz.model.User;
-import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.ProfileView;
 import id.co.bsi.Vuluz.repository.UserRepository;
-import id.co.bsi.Vuluz.repository.WalletRepository;
-import id.co.bsi.Vuluz.utils.SecurityUtility;
+import id.co.bsi.Vuluz.utils.CurrentAccountContext;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ProfileService {
     @Autowired
-    private SecurityUtility securityUtility;
+    private CurrentAccountContext currentAccountContext;
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private WalletRepository walletRepository;
+    private WalletReadCache walletReadCache;
 
     public ProfileResponse getProfileDetails() {
-        Long userId = securityUtility.getCurrentUserId();
-        User user = userRepository.findById(userId).orElseThrow();
+        ProfileView view = userRepository.findProfileViewById(currentAccountContext.getUserId()).orElseThrow();
         ProfileResponse profileResponse = new ProfileResponse();
-        profileResponse.setFullName(user.getFullName());
-        profileResponse.setUserName(user.getUserName());
-        profileResponse.setEmail(user.getEmail());
-        profileResponse.setAvatarUrl(user.getAvatarUrl());
-        profileResponse.setGender(user.getGender());
-
-        Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
-        profileResponse.setWalletName(wallet.getWalletName());
-        profileResponse.setWalletNumber(wallet.getWalletNumber());
-        profileResponse.setWalletBalance(wallet.getBalance());
+        profileResponse.setFullName(view.getFullName());
+        profileResponse.setUserName(view.getUserName());
+        profileResponse.setEmail(view.getEmail());
+        profileResponse.setAvatarUrl(view.getAvatarUrl());
+        profileResponse.setGender(view.getGender());
+        profileResponse.setWalletName(view.getWalletName());
+        profileResponse.setWalletNumber(view.getWalletNumber());
+        profileResponse.setWalletBalance(view.getWalletBalance());
 
         return profileResponse;
     }
 
+    @Transactional
     public User editProfiles(EditProfileRequest editProfileRequest) {
-        Long userId = securityUtility.getCurrentUserId();
-        User user = userRepository.findById(userId).orElseThrow();
+        User user = userRepository.findById(currentAccountContext.getUserId()).orElseThrow();
 
         if(!(editProfileRequest.getFullName() == null || editProfileRequest.getFullName().isEmpty())){
             user.setFullName(editProfileRequest.getFullName());
+            // the cached balance response carries the full name as the account name
+            walletReadCache.evictAfterCommit(user.getWallet().getId());
         }
         if(!(editProfileRequest.getUserName() == null || editProfileRequest.getUserName().isEmpty())){
             user.setUserName(editProfileRequest.getUserName());
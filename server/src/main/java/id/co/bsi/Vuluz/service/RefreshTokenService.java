@@ -0,0 +1,190 @@
+package id.co.bsi.Vuluz.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import id.co.bsi.Vuluz.dto.response.LogInResponse;
+import id.co.bsi.Vuluz.model.RefreshToken;
+import id.co.bsi.Vuluz.model.User;
+import id.co.bsi.Vuluz.repository.RefreshTokenRepository;
+import id.co.bsi.Vuluz.repository.UserRepository;
+import id.co.bsi.Vuluz.utils.JwtUtility;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+
+// Long-lived opaque tokens that buy new access tokens without the password, so an expired
+// session costs a hash lookup instead of BCrypt. Each token can be used once and is replaced by
+// its successor; a token that comes back after it was used means it leaked, and the whole
+// family issued from that login is revoked. Within a short grace window a just-used token is taken
+// to be a second tab or a retried request instead, and gets the same successor back. Only the
+// instance that rotated it still knows that successor; anywhere else the request is rejected, but
+// the family is kept.
+@Slf4j
+@Service
+public class RefreshTokenService {
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UserStatusService userStatusService;
+
+    @Autowired
+    private JwtUtility jwtUtility;
+
+    @Value("${app.jwt.refresh-expiration:14d}")
+    private Duration refreshExpiration;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration reuseGrace;
+
+    // successor of each token rotated within the grace window, keyed by the used token's hash
+    private final Cache<String, String> successors;
+
+    public RefreshTokenService(PlatformTransactionManager transactionManager,
+                               @Value("${app.jwt.refresh-reuse-grace:10s}") Duration reuseGrace) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reuseGrace = reuseGrace;
+        this.successors = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(reuseGrace)
+                .build();
+    }
+
+    // starts a new family; called after a successful login
+    public String issue(Long userId) {
+        return save(userId, UUID.randomUUID().toString());
+    }
+
+    public LogInResponse refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new RuntimeException("Refresh token is required");
+        }
+
+        Rotation rotation = transactionTemplate.execute(status -> {
+            RefreshToken current = refreshTokenRepository.findByTokenHash(hash(refreshToken)).orElse(null);
+            if (current == null) {
+                return Rotation.rejected("Invalid refresh token");
+            }
+            Date now = new Date();
+            if (current.isRevoked() || (current.getUsedAt() != null && !withinReuseGrace(current, now))) {
+                // committed with the rejection so the family stays revoked
+                refreshTokenRepository.revokeFamily(current.getFamilyId());
+                return Rotation.rejected("Refresh token was already used");
+            }
+            if (current.getExpiresAt().before(now)) {
+                return Rotation.rejected("Refresh token expired");
+            }
+            if (!userStatusService.isActive(current.getUserId())) {
+                return Rotation.rejected("Invalid refresh token");
+            }
+
+            if (current.getUsedAt() != null) {
+                // rotated moments ago, e.g. by another tab; never mint a second token for it, since
+                // that would be a live token the reuse detection does not know about
+                String successor = successors.getIfPresent(current.getTokenHash());
+                if (successor == null || !hash(successor).equals(current.getReplacedBy())) {
+                    return Rotation.rejected("Refresh token was already used");
+                }
+                return new Rotation(current.getUserId(), successor, null);
+            }
+
+            String successor = save(current.getUserId(), current.getFamilyId());
+            current.setUsedAt(now);
+            current.setReplacedBy(hash(successor));
+            // the row lock holds a racing refresh until this commits, so it finds the successor
+            successors.put(current.getTokenHash(), successor);
+            return new Rotation(current.getUserId(), successor, null);
+        });
+
+        if (rotation.error() != null) {
+            throw new RuntimeException(rotation.error());
+        }
+
+        User user = userRepository.findById(rotation.userId())
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        LogInResponse response = new LogInResponse();
+        response.setToken(jwtUtility.generateToken(userDetailsService.loadUserByUsername(user.getEmail()), user.getId()));
+        response.setRefreshToken(rotation.refreshToken());
+        response.setExpiresIn(jwtUtility.getExpiration().toSeconds());
+        return response;
+    }
+
+    // logout: ends every token of the family, as long as it belongs to the caller
+    public void revoke(String refreshToken, Long userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            RefreshToken current = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                    .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+            if (!current.getUserId().equals(userId)) {
+                throw new RuntimeException("Invalid refresh token");
+            }
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(new Date());
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    private boolean withinReuseGrace(RefreshToken token, Date now) {
+        return now.getTime() - token.getUsedAt().getTime() <= reuseGrace.toMillis();
+    }
+
+    private String save(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(userId);
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setCreatedAt(new Date());
+        refreshToken.setExpiresAt(new Date(System.currentTimeMillis() + refreshExpiration.toMillis()));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    // 256 random bits need no salt or slow hash; SHA-256 keeps a database leak from exposing usable tokens
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Rotation(Long userId, String refreshToken, String error) {
+        static Rotation rejected(String error) {
+            return new Rotation(null, null, error);
+        }
+    }
+}
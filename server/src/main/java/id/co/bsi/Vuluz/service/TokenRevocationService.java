@@ -0,0 +1,107 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.model.RevokedToken;
+import id.co.bsi.Vuluz.repository.RevokedTokenRepository;
+import id.co.bsi.Vuluz.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Revoked token ids live in the database and are mirrored in memory, so the JWT filter answers
+// "is this token revoked?" without a query. The bloom filter turns away almost every token that
+// was never revoked; only its rare positives are confirmed against the exact set.
+@Slf4j
+@Service
+public class TokenRevocationService {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${app.revocation.expected-size:100000}")
+    private long expectedSize;
+
+    // jti -> expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+
+    // revocations made on other instances are picked up from this point on
+    private Date syncedUpTo = new Date(0);
+
+    public TokenRevocationService(MeterRegistry meterRegistry) {
+        Gauge.builder("auth.revoked.tokens", revoked, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        filter = new BloomFilter(expectedSize, FALSE_POSITIVE_RATE);
+        sync();
+    }
+
+    public boolean isRevoked(String jti) {
+        // tokens issued before jti was added cannot be revoked and simply run out
+        return jti != null && filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    public void revoke(String jti, Long userId, Date expiresAt) {
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setUserId(userId);
+        token.setRevokedAt(new Date());
+        token.setExpiresAt(expiresAt);
+        try {
+            revokedTokenRepository.saveAndFlush(token);
+        } catch (DataIntegrityViolationException e) {
+            // already revoked, e.g. a repeated logout
+        }
+        remember(jti, expiresAt);
+    }
+
+    @Scheduled(fixedDelayString = "${app.revocation.sync-interval:PT10S}", initialDelayString = "${app.revocation.sync-interval:PT10S}")
+    public void sync() {
+        Date now = new Date();
+        // rows committed just before the previous run may carry an earlier timestamp, so the window overlaps
+        Date since = new Date(syncedUpTo.getTime() - 5000);
+        for (RevokedToken token : syncedUpTo.getTime() == 0
+                ? revokedTokenRepository.findByExpiresAtAfter(now)
+                : revokedTokenRepository.findByRevokedAtGreaterThanEqual(since)) {
+            remember(token.getJti(), token.getExpiresAt());
+        }
+        syncedUpTo = now;
+    }
+
+    @Scheduled(fixedDelayString = "${app.revocation.purge-interval:PT10M}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int deleted = revokedTokenRepository.deleteExpired(new Date(now));
+        synchronized (this) {
+            revoked.values().removeIf(expiresAt -> expiresAt < now);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedSize, revoked.size() * 2L), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+        }
+        if (deleted > 0) {
+            log.info("Purged {} expired revoked tokens", deleted);
+        }
+    }
+
+    // the exact set is written first, so a concurrent reader never sees the filter ahead of it
+    private synchronized void remember(String jti, Date expiresAt) {
+        if (expiresAt.getTime() < System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(jti, expiresAt.getTime());
+        filter.put(jti);
+    }
+}
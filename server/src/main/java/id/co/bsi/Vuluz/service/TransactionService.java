@@ -1,27 +1,22 @@
 package id.co.bsi.Vuluz.service;
 
-import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
 import id.co.bsi.Vuluz.dto.request.*;
 import id.co.bsi.Vuluz.dto.response.*;
 import id.co.bsi.Vuluz.model.Favorite;
-import id.co.bsi.Vuluz.model.Transaction;
 import id.co.bsi.Vuluz.model.User;
 import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.CurrentAccount;
 import id.co.bsi.Vuluz.repository.FavoriteRepository;
-import id.co.bsi.Vuluz.repository.TransactionRepository;
 import id.co.bsi.Vuluz.repository.UserRepository;
 import id.co.bsi.Vuluz.repository.WalletRepository;
-import id.co.bsi.Vuluz.utils.SecurityUtility;
-import jakarta.transaction.Transactional;
+import id.co.bsi.Vuluz.utils.CurrentAccountContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,36 +28,47 @@ public class TransactionService {
     private WalletRepository walletRepository;
 
     @Autowired
-    private TransactionRepository transactionRepository;
+    private FavoriteRepository favoriteRepository;
 
     @Autowired
-    private SecurityUtility securityUtility;
+    private PasswordEncoder passwordEncoder;
 
     @Autowired
-    private FavoriteRepository favoriteRepository;
+    private TransferEngine transferEngine;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private CurrentAccountContext currentAccountContext;
+
+    @Autowired
+    private PinUnlockService pinUnlockService;
 
     final BigDecimal minimumTopup = BigDecimal.valueOf(10000);
     final BigDecimal maximumTransaction = BigDecimal.valueOf(100000000);
 
 
     public TransferResponse transfer(TransferRequest transferRequest) {
-        User user = userRepository.findById(securityUtility.getCurrentUserId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        return transfer(transferRequest, null);
+    }
 
-        if(transferRequest.getPin() == null){
-            throw new RuntimeException("Input your pin");
-        }
+    // a valid PIN unlock token replaces the PIN
+    public TransferResponse transfer(TransferRequest transferRequest, String pinUnlockToken) {
+        return transfer(transferRequest, pinUnlockToken, null);
+    }
 
-        if (!passwordEncoder.matches(transferRequest.getPin(), user.getPin())) {
-            throw new RuntimeException("Invalid PIN");
-        }
+    public TransferResponse transfer(TransferRequest transferRequest, String pinUnlockToken, Long idempotencyClaimId) {
+        CurrentAccount account = currentAccountContext.get();
 
-        Wallet fromWallet = user.getWallet();
+        if (!pinUnlockService.isUnlocked(account, pinUnlockToken)) {
+            if(transferRequest.getPin() == null){
+                throw new RuntimeException("Input your pin");
+            }
 
-        if(Objects.equals(transferRequest.getToWalletNumber(), fromWallet.getWalletNumber())){
+            if (!passwordEncoder.matches(transferRequest.getPin(), account.getPinHash())) {
+                throw new RuntimeException("Invalid PIN");
+            }
+        }
+
+        if(Objects.equals(transferRequest.getToWalletNumber(), account.getWalletNumber())){
             throw new RuntimeException("You cant transfer to yourself");
         }
 
@@ -74,67 +80,51 @@ public class TransactionService {
             throw new RuntimeException("Transfer amount is required");
         }
 
+        if (transferRequest.getAmount().signum() <= 0) {
+            throw new RuntimeException("Transfer amount must be greater than 0");
+        }
+
         if (transferRequest.getAmount().compareTo(maximumTransaction) > 0) {
             throw new RuntimeException("Transfer amount must not exceed Rp100.000.000");
         }
 
-
-        Wallet toWallet = walletRepository.findByWalletNumber(transferRequest.getToWalletNumber())
-                .orElseThrow(() -> new RuntimeException("Receiver wallet number is not found"));
-
-        if (fromWallet.getBalance().compareTo(transferRequest.getAmount()) < 0) {
-            throw new RuntimeException("Balance is not enough");
+        if (!WalletNumberAllocator.isWellFormed(transferRequest.getToWalletNumber())) {
+            throw new RuntimeException("Receiver wallet number is not found");
         }
 
-        fromWallet.setBalance(fromWallet.getBalance().subtract(transferRequest.getAmount()));
-        fromWallet.setUpdatedAt(new Date());
-        walletRepository.save(fromWallet);
-
-        toWallet.setBalance(toWallet.getBalance().add(transferRequest.getAmount()));
-        toWallet.setUpdatedAt(new Date());
-        walletRepository.save(toWallet);
-
-        Transaction transactionIn = new Transaction();
-        transactionIn.setTransactionType("Transfer In");
-        transactionIn.setAmount(transferRequest.getAmount());
-        transactionIn.setFromWalletNumber(fromWallet.getWalletNumber());
-        transactionIn.setToWalletNumber(toWallet.getWalletNumber());
-        transactionIn.setTransactionDate(new Date());
-        transactionIn.setDescription(transferRequest.getNotes());
-        transactionIn.setPaymentMethod("Vuluz");
-        transactionIn.setWallet(toWallet);
-
-        transactionRepository.save(transactionIn);
-
-        Transaction transactionOut = new Transaction();
-        transactionOut.setTransactionType("Transfer Out");
-        transactionOut.setAmount(transferRequest.getAmount());
-        transactionOut.setFromWalletNumber(fromWallet.getWalletNumber());
-        transactionOut.setToWalletNumber(toWallet.getWalletNumber());
-        transactionOut.setTransactionDate(new Date());
-        transactionOut.setDescription(transferRequest.getNotes());
-        transactionOut.setPaymentMethod("Vuluz");
-        transactionOut.setWallet(fromWallet);
-
-        transactionRepository.save(transactionOut);
+        Long toWalletId = walletRepository.findIdByWalletNumber(transferRequest.getToWalletNumber())
+                .orElseThrow(() -> new RuntimeException("Receiver wallet number is not found"));
 
         TransferResponse response = new TransferResponse();
         response.setStatus("Success");
         response.setMessage("Transfer Success");
 
+        transferEngine.transfer(account.getWalletId(), account.getWalletNumber(),
+                toWalletId, transferRequest.getToWalletNumber(),
+                transferRequest.getAmount(), transferRequest.getNotes(), idempotencyClaimId, response);
+
         return response;
     }
 
     public TopUpResponse topup(TopUpRequest topUpRequest){
-        User user = userRepository.findById(securityUtility.getCurrentUserId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        return topup(topUpRequest, null);
+    }
 
-        if(topUpRequest.getPin() == null){
-            throw new RuntimeException("Input pin is required");
-        }
+    public TopUpResponse topup(TopUpRequest topUpRequest, String pinUnlockToken){
+        return topup(topUpRequest, pinUnlockToken, null);
+    }
+
+    public TopUpResponse topup(TopUpRequest topUpRequest, String pinUnlockToken, Long idempotencyClaimId){
+        CurrentAccount account = currentAccountContext.get();
+
+        if (!pinUnlockService.isUnlocked(account, pinUnlockToken)) {
+            if(topUpRequest.getPin() == null){
+                throw new RuntimeException("Input pin is required");
+            }
 
-        if (!passwordEncoder.matches(topUpRequest.getPin(), user.getPin())) {
-            throw new RuntimeException("Invalid PIN");
+            if (!passwordEncoder.matches(topUpRequest.getPin(), account.getPinHash())) {
+                throw new RuntimeException("Invalid PIN");
+            }
         }
 
         if(topUpRequest.getPaymentMethod() == null || topUpRequest.getPaymentMethod().isEmpty()){
@@ -153,57 +143,37 @@ public class TransactionService {
             throw new RuntimeException("Top up amount must not exceed Rp100.000.000");
         }
 
-        Wallet wallet = user.getWallet();
-
-        wallet.setBalance(wallet.getBalance().add(topUpRequest.getAmount()));
-        wallet.setUpdatedAt(new Date());
-        walletRepository.save(wallet);
-
-        Transaction transaction = new Transaction();
-        transaction.setTransactionType("Top Up");
-        transaction.setAmount(topUpRequest.getAmount());
-        transaction.setFromWalletNumber(wallet.getWalletNumber());
-        transaction.setToWalletNumber(wallet.getWalletNumber());
-        transaction.setTransactionDate(new Date());
-        transaction.setDescription(topUpRequest.getDescription());
-        transaction.setPaymentMethod(topUpRequest.getPaymentMethod());
-        transaction.setWallet(wallet);
-        transactionRepository.save(transaction);
-
         TopUpResponse response = new TopUpResponse();
         response.setStatus("Success");
         response.setMessage("Top Up Success");
 
+        transferEngine.topup(account.getWalletId(), account.getWalletNumber(), topUpRequest.getAmount(),
+                topUpRequest.getPaymentMethod(), topUpRequest.getDescription(), idempotencyClaimId, response);
+
         return response;
     }
 
     public AddFavoriteResponse addFavoriteResponse(AddFavoriteRequest addFavoriteRequest){
-        User user = userRepository.findById(securityUtility.getCurrentUserId())
-                .orElseThrow(() -> new RuntimeException("User is not found"));
-
+        CurrentAccount account = currentAccountContext.get();
         Long walletNumberToAdd = addFavoriteRequest.getWalletNumber();
-        List<Favorite> listFavorite = user.getFavorites();
-
-        boolean alreadyFavorited = listFavorite.stream()
-                .anyMatch(fav -> fav.getWalletNumber().equals(walletNumberToAdd));
 
-        Wallet userWallet = user.getWallet();
-
-        if (addFavoriteRequest.getWalletNumber().equals(userWallet.getWalletNumber())) {
+        if (addFavoriteRequest.getWalletNumber().equals(account.getWalletNumber())) {
             throw new RuntimeException("You cannot add your own wallet number");
         }
 
-        if (alreadyFavorited) {
-            throw new RuntimeException("Wallet number already added to favorites");
-        }
+        User userFavorite = userRepository.findByWallet_WalletNumber(walletNumberToAdd)
+                .orElseThrow(() -> new RuntimeException("User favorite is not found"));
 
         Favorite favorite = new Favorite();
         favorite.setWalletNumber(walletNumberToAdd);
-        favorite.setUser(user);
-        favoriteRepository.save(favorite);
+        favorite.setUser(userRepository.getReferenceById(account.getUserId()));
+        try {
+            favoriteRepository.saveAndFlush(favorite);
+        } catch (DataIntegrityViolationException e) {
+            // favorite_user_id_wallet_number_key
+            throw new RuntimeException("Wallet number already added to favorites");
+        }
 
-        User userFavorite = userRepository.findByWallet_WalletNumber(addFavoriteRequest.getWalletNumber())
-                .orElseThrow(() -> new RuntimeException("User favorite is not found"));;
         AddFavoriteResponse addFavoriteResponse = new AddFavoriteResponse();
         addFavoriteResponse.setFullName(userFavorite.getFullName());
         addFavoriteResponse.setStatus("Success");
@@ -212,8 +182,7 @@ public class TransactionService {
     }
 
     public DeleteFavoriteResponse deleteFavorite(Long walletNumber) {
-        User user = userRepository.findById(securityUtility.getCurrentUserId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = userRepository.getReferenceById(currentAccountContext.get().getUserId());
 
         Wallet targetWallet = walletRepository.findByWalletNumber(walletNumber)
                 .orElseThrow(() -> new RuntimeException("Target wallet not found"));
@@ -231,29 +200,16 @@ public class TransactionService {
     }
 
     public List<GetFavoriteResponse> getFavorites() {
-        User user = userRepository.findById(securityUtility.getCurrentUserId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<Favorite> favorites = user.getFavorites();
-
-        return favorites.stream().map(favorite -> {
-            GetFavoriteResponse response = new GetFavoriteResponse();
-            response.setId(favorite.getId());
-            response.setWalletNumber(favorite.getWalletNumber());
-
-            Wallet wallet = walletRepository.findByWalletNumber(favorite.getWalletNumber())
-                    .orElse(null);
-
-            if (wallet != null) {
-                response.setWalletName(wallet.getWalletName());
-                User owner = wallet.getUser();
-                if (owner != null) {
-                    response.setOwnerName(owner.getFullName());
-                }
-            }
-
-            return response;
-        }).collect(Collectors.toList());
+        return favoriteRepository.findViewsByUserId(currentAccountContext.get().getUserId()).stream()
+                .map(favorite -> {
+                    GetFavoriteResponse response = new GetFavoriteResponse();
+                    response.setId(favorite.getId());
+                    response.setWalletNumber(favorite.getWalletNumber());
+                    response.setWalletName(favorite.getWalletName());
+                    response.setOwnerName(favorite.getOwnerName());
+                    return response;
+                })
+                .collect(Collectors.toList());
     }
 
 
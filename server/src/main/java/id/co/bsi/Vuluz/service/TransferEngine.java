@@ -0,0 +1,189 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.PostingDirection;
+import id.co.bsi.Vuluz.model.Transaction;
+import id.co.bsi.Vuluz.model.TransactionType;
+import id.co.bsi.Vuluz.repository.PostedBalance;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.repository.TransactionRepository;
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+public class TransferEngine {
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private CashflowRollupService cashflowRollupService;
+
+    @Autowired
+    private WalletReadCache walletReadCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.transfer.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.transfer.backoff-millis:10}")
+    private long backoffMillis;
+
+    @Value("${app.transfer.max-backoff-millis:200}")
+    private long maxBackoffMillis;
+
+    public TransferEngine(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void transfer(Long fromWalletId, Long fromWalletNumber, Long toWalletId, Long toWalletNumber,
+                         BigDecimal amount, String notes) {
+        transfer(fromWalletId, fromWalletNumber, toWalletId, toWalletNumber, amount, notes, null, null);
+    }
+
+    // with an idempotency claim, its outcome commits or rolls back together with the postings
+    public void transfer(Long fromWalletId, Long fromWalletNumber, Long toWalletId, Long toWalletNumber,
+                         BigDecimal amount, String notes, Long idempotencyClaimId, Object response) {
+        executeWithRetry(status -> {
+            Date now = new Date();
+
+            // Each conditional UPDATE locks its row until commit; touching the rows in ascending
+            // wallet number order means two transfers between the same wallets cannot deadlock.
+            if (fromWalletNumber < toWalletNumber) {
+                debit(fromWalletId, amount, now);
+                credit(toWalletId, amount, now);
+            } else {
+                credit(toWalletId, amount, now);
+                debit(fromWalletId, amount, now);
+            }
+
+            Transaction transaction = new Transaction();
+            transaction.setTransactionType(TransactionType.TRANSFER);
+            transaction.setAmount(amount);
+            transaction.setFromWalletNumber(fromWalletNumber);
+            transaction.setToWalletNumber(toWalletNumber);
+            transaction.setTransactionDate(now);
+            transaction.setDescription(notes);
+            transaction.setPaymentMethod("Vuluz");
+            transactionRepository.save(transaction);
+
+            post(transaction, fromWalletId, PostingDirection.DEBIT);
+            post(transaction, toWalletId, PostingDirection.CREDIT);
+            complete(idempotencyClaimId, response);
+            walletReadCache.evictAfterCommit(fromWalletId, toWalletId);
+            return null;
+        });
+    }
+
+    public void topup(Long walletId, Long walletNumber, BigDecimal amount, String paymentMethod, String description) {
+        topup(walletId, walletNumber, amount, paymentMethod, description, null, null);
+    }
+
+    public void topup(Long walletId, Long walletNumber, BigDecimal amount, String paymentMethod, String description,
+                      Long idempotencyClaimId, Object response) {
+        executeWithRetry(status -> {
+            Date now = new Date();
+            credit(walletId, amount, now);
+
+            Transaction transaction = new Transaction();
+            transaction.setTransactionType(TransactionType.TOP_UP);
+            transaction.setAmount(amount);
+            transaction.setFromWalletNumber(walletNumber);
+            transaction.setToWalletNumber(walletNumber);
+            transaction.setTransactionDate(now);
+            transaction.setDescription(description);
+            transaction.setPaymentMethod(paymentMethod);
+            transactionRepository.save(transaction);
+
+            post(transaction, walletId, PostingDirection.CREDIT);
+            complete(idempotencyClaimId, response);
+            walletReadCache.evictAfterCommit(walletId);
+            return null;
+        });
+    }
+
+    private void post(Transaction transaction, Long walletId, PostingDirection direction) {
+        Posting posting = new Posting();
+        posting.setTransaction(transaction);
+        posting.setWallet(walletRepository.getReferenceById(walletId));
+        posting.setDirection(direction);
+        posting.setAmount(transaction.getAmount());
+        // the wallet row is locked by our own UPDATE, so this is exactly the balance this posting produced
+        PostedBalance balance = walletRepository.findPostedBalanceById(walletId);
+        posting.setBalanceAfter(balance.getBalance());
+        posting.setPostedAt(transaction.getTransactionDate());
+        postingRepository.save(posting);
+        cashflowRollupService.record(walletId, direction, posting.getAmount(), posting.getPostedAt());
+
+        Long walletNumber = direction == PostingDirection.DEBIT
+                ? transaction.getFromWalletNumber()
+                : transaction.getToWalletNumber();
+        eventPublisher.publishEvent(new WalletPostedEvent(walletId, walletNumber, posting.getId(),
+                posting.getBalanceAfter(), posting.getPostedAt(), balance.getVersion()));
+    }
+
+    private void complete(Long idempotencyClaimId, Object response) {
+        if (idempotencyClaimId != null) {
+            idempotencyService.complete(idempotencyClaimId, response);
+        }
+    }
+
+    private void debit(Long walletId, BigDecimal amount, Date now) {
+        if (walletRepository.debit(walletId, amount, now) == 0) {
+            throw new RuntimeException("Balance is not enough");
+        }
+    }
+
+    private void credit(Long walletId, BigDecimal amount, Date now) {
+        if (walletRepository.credit(walletId, amount, now) == 0) {
+            throw new RuntimeException("Receiver wallet number is not found");
+        }
+    }
+
+    private <T> T executeWithRetry(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (ConcurrencyFailureException e) {
+                // deadlock, lock timeout or serialization failure: the transaction was rolled back as a whole
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Wallet is busy, please try again");
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << (attempt - 1));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transfer interrupted");
+        }
+    }
+}
@@ -2,11 +2,12 @@ package id.co.bsi.Vuluz.service;
 
 import id.co.bsi.Vuluz.dto.request.LogInRequest;
 import id.co.bsi.Vuluz.dto.request.RegisterRequest;
+import id.co.bsi.Vuluz.dto.response.LogInResponse;
 import id.co.bsi.Vuluz.model.User;
 import id.co.bsi.Vuluz.model.Wallet;
 import id.co.bsi.Vuluz.repository.UserRepository;
-import id.co.bsi.Vuluz.repository.WalletRepository;
 import id.co.bsi.Vuluz.utils.JwtUtility;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
@@ -15,7 +16,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import java.util.concurrent.ThreadLocalRandom;
 import org.springframework.security.authentication.AuthenticationManager;
 
 
@@ -28,9 +28,6 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
-    @Autowired
-    private WalletRepository walletRepository;
-
     @Autowired
     private JwtUtility jwtUtility;
 
@@ -43,6 +40,15 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private WalletNumberAllocator walletNumberAllocator;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     public User register(RegisterRequest registerRequest) {
 
         if (registerRequest.getEmail() == null || registerRequest.getEmail().trim().isEmpty()) {
@@ -102,12 +108,7 @@ public class UserService {
         Wallet wallet = new Wallet();
         wallet.setUser(users);
 
-        Long randomWalletNumber;
-        do {
-            randomWalletNumber = ThreadLocalRandom.current().nextLong(100000, 1000000);
-        } while (walletRepository.findByWalletNumber(randomWalletNumber).isPresent());
-
-        wallet.setWalletNumber(randomWalletNumber);
+        wallet.setWalletNumber(walletNumberAllocator.allocate());
         wallet.setBalance(BigDecimal.ZERO);
         wallet.setWalletName("Main Pocket");
         wallet.setCreatedAt(new Date());
@@ -119,7 +120,7 @@ public class UserService {
     }
 
 
-    public String login(LogInRequest loginRequest) {
+    public LogInResponse login(LogInRequest loginRequest) {
         try {
             // Check if user exists before authentication
             User user = this.userRepository.findByEmail(loginRequest.getEmail())
@@ -130,7 +131,11 @@ public class UserService {
             );
 
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(loginRequest.getEmail());
-            return jwtUtility.generateToken(userDetails, user.getId());
+            LogInResponse response = new LogInResponse();
+            response.setToken(jwtUtility.generateToken(userDetails, user.getId()));
+            response.setRefreshToken(refreshTokenService.issue(user.getId()));
+            response.setExpiresIn(jwtUtility.getExpiration().toSeconds());
+            return response;
         } catch (UsernameNotFoundException e) {
             throw e;
         } catch (AuthenticationException e) {
@@ -138,4 +143,23 @@ public class UserService {
         }
     }
 
+    public void logout(String token, String refreshToken, Long currentUserId) {
+        Claims claims = jwtUtility.parseClaims(token);
+
+        if (jwtUtility.isScoped(claims) || !currentUserId.equals(claims.get("userId", Long.class))) {
+            throw new RuntimeException("Invalid token");
+        }
+
+        if (claims.getId() == null) {
+            throw new RuntimeException("Token cannot be revoked");
+        }
+
+        // nothing is revoked until both tokens checked out; revoking the access token also ends the
+        // PIN unlocks issued under it
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken, currentUserId);
+        }
+        tokenRevocationService.revoke(claims.getId(), currentUserId, claims.getExpiration());
+    }
+
 }
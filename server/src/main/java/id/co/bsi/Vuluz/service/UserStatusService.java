@@ -0,0 +1,45 @@
+package id.co.bsi.Vuluz.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import id.co.bsi.Vuluz.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// Optional revocation check for requests authenticated from token claims alone: a user that no longer
+// exists is rejected within one TTL, without a lookup on every request.
+@Service
+public class UserStatusService {
+    @Autowired
+    private UserRepository userRepository;
+
+    private final boolean enabled;
+    private final Cache<Long, Boolean> activeUsers;
+
+    public UserStatusService(@Value("${app.jwt.user-status-check:false}") boolean enabled,
+                             @Value("${app.jwt.user-status-ttl:30s}") Duration ttl,
+                             @Value("${app.jwt.user-status-cache-size:10000}") long cacheSize) {
+        this.enabled = enabled;
+        this.activeUsers = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public boolean isActive(Long userId) {
+        if (!enabled) {
+            return true;
+        }
+        if (userId == null) {
+            return false;
+        }
+        return activeUsers.get(userId, userRepository::existsById);
+    }
+
+    public void evict(Long userId) {
+        activeUsers.invalidate(userId);
+    }
+}
@@ -0,0 +1,95 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+// Hands out 7-digit wallet numbers: a 6-digit payload followed by a Luhn check digit. The payload is
+// slot n of wallet_number_seq pushed through a fixed permutation of the 900000 slots, so numbers are
+// unique without a lookup and consecutive registrations do not get neighbouring numbers.
+// Wallets created before the allocator kept their 6-digit numbers, which can never collide with these.
+@Slf4j
+@Service
+public class WalletNumberAllocator {
+    public static final long CAPACITY = 900_000;
+
+    private static final long PAYLOAD_BASE = 100_000;
+    // coprime with CAPACITY (2^5 * 3^2 * 5^5), which makes slot -> payload a bijection
+    private static final long MULTIPLIER = 387_253;
+    private static final long OFFSET = 271_828;
+
+    private final WalletRepository walletRepository;
+
+    public WalletNumberAllocator(WalletRepository walletRepository, MeterRegistry meterRegistry) {
+        this.walletRepository = walletRepository;
+        Gauge.builder("wallet.number.utilization", this, allocator -> allocator.utilization().getRatio())
+                .description("share of the allocator's wallet numbers already issued")
+                .register(meterRegistry);
+    }
+
+    public Long allocate() {
+        long slot;
+        try {
+            slot = walletRepository.nextWalletNumberSlot();
+        } catch (DataAccessException e) {
+            // the sequence stops at CAPACITY
+            log.error("Wallet number sequence is exhausted", e);
+            throw new RuntimeException("No wallet numbers are left");
+        }
+        // each slot is issued once, so exactly one registration logs each percent from 90% on
+        long percent = slot * 100 / CAPACITY;
+        if (percent >= 90 && percent > (slot - 1) * 100 / CAPACITY) {
+            log.warn("Wallet number space is {}% used", percent);
+        }
+        return walletNumberForSlot(slot);
+    }
+
+    public Utilization utilization() {
+        // read from the sequence, so a scrape does not count the wallets
+        return new Utilization(Math.min(walletRepository.issuedWalletNumberSlots(), CAPACITY), CAPACITY);
+    }
+
+    // a cheap typo check before looking a number up; legacy 6-digit numbers carry no check digit
+    public static boolean isWellFormed(Long walletNumber) {
+        if (walletNumber == null) {
+            return false;
+        }
+        if (walletNumber >= PAYLOAD_BASE && walletNumber < PAYLOAD_BASE * 10) {
+            return true;
+        }
+        long payload = walletNumber / 10;
+        return payload >= PAYLOAD_BASE && payload < PAYLOAD_BASE + CAPACITY
+                && checkDigit(payload) == walletNumber % 10;
+    }
+
+    static Long walletNumberForSlot(long slot) {
+        long payload = PAYLOAD_BASE + Math.floorMod(MULTIPLIER * (slot - 1) + OFFSET, CAPACITY);
+        return payload * 10 + checkDigit(payload);
+    }
+
+    static long checkDigit(long payload) {
+        int sum = 0;
+        boolean doubled = true;
+        for (long rest = payload; rest > 0; rest /= 10) {
+            int digit = (int) (rest % 10);
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    public record Utilization(long issued, long capacity) {
+        public double getRatio() {
+            return (double) issued / capacity;
+        }
+    }
+}
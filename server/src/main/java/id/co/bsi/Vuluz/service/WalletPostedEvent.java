@@ -0,0 +1,10 @@
+package id.co.bsi.Vuluz.service;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// Published for every posting the engine writes; listeners decide whether they care before or after commit.
+// walletVersion is the wallet's version right after the posting and orders the wallet's events.
+public record WalletPostedEvent(Long walletId, Long walletNumber, Long postingId, BigDecimal balanceAfter, Date postedAt,
+                                long walletVersion) {
+}
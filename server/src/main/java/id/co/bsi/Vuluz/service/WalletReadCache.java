@@ -0,0 +1,96 @@
+package id.co.bsi.Vuluz.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import id.co.bsi.Vuluz.dto.TransactionSummaryResponse;
+import id.co.bsi.Vuluz.dto.response.BalanceResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Per-wallet cache of the balance and summary responses the clients poll. Entries are dropped
+// after every committed posting to the wallet; the TTL only bounds what another node may miss.
+@Service
+public class WalletReadCache {
+    private final CacheInvalidationBus invalidationBus;
+
+    // a user's wallet never changes, so this mapping is only bounded by size
+    private final Cache<Long, Long> walletIds;
+    private final Cache<Long, BalanceResponse> balances;
+    private final Cache<Long, TransactionSummaryResponse> summaries;
+
+    public WalletReadCache(CacheInvalidationBus invalidationBus,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.wallet-cache.ttl:30s}") Duration ttl,
+                           @Value("${app.wallet-cache.size:10000}") long cacheSize) {
+        this.invalidationBus = invalidationBus;
+        this.walletIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        this.balances = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, "wallet.balance");
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, "wallet.summary");
+        invalidationBus.subscribe(this::evict);
+    }
+
+    public Long cachedWalletId(Long userId) {
+        return walletIds.getIfPresent(userId);
+    }
+
+    public void rememberWalletId(Long userId, Long walletId) {
+        walletIds.put(userId, walletId);
+    }
+
+    public Long walletIdOf(Long userId, Supplier<Long> resolver) {
+        return walletIds.get(userId, id -> resolver.get());
+    }
+
+    // An eviction waits for a load of the same key that is still running, so a load that read the
+    // wallet before a commit can never outlive that commit's eviction.
+    public BalanceResponse balance(Long walletId, Function<Long, BalanceResponse> loader) {
+        return balances.get(walletId, loader);
+    }
+
+    public TransactionSummaryResponse summary(Long walletId, Function<Long, TransactionSummaryResponse> loader) {
+        return summaries.get(walletId, loader);
+    }
+
+    // Publishes the eviction once the current transaction commits; nothing is published on rollback.
+    public void evictAfterCommit(Long... walletIds) {
+        List<Long> changed = List.of(walletIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidationBus.publish(changed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidationBus.publish(changed);
+            }
+        });
+    }
+
+    private void evict(Collection<Long> walletIds) {
+        balances.invalidateAll(walletIds);
+        summaries.invalidateAll(walletIds);
+    }
+}
@@ -0,0 +1,179 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
+import id.co.bsi.Vuluz.dto.response.BalanceResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pushes balance changes and new transactions to the wallet's open /api/stream connections.
+// An idle connection is an async request with no thread behind it; sends happen on virtual threads
+// so a slow client never holds up the transaction that produced the event.
+@Slf4j
+@Service
+public class WalletStreamService {
+    @Autowired
+    private DashboardService dashboardService;
+
+    private final long timeoutMillis;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    public WalletStreamService(@Value("${app.stream.timeout:30m}") Duration timeout, MeterRegistry meterRegistry) {
+        this.timeoutMillis = timeout.toMillis();
+        meterRegistry.gauge("wallet.stream.subscribers", subscribers,
+                map -> map.values().stream().mapToInt(Set::size).sum());
+    }
+
+    public SseEmitter subscribe(Long walletId, BalanceResponse snapshot) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(walletId, emitter);
+        subscribers.computeIfAbsent(walletId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(e -> subscriber.remove());
+
+        // the client gets the current balance right away instead of fetching it separately
+        subscriber.offer(SseEmitter.event().name("balance").data(snapshot));
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPosted(WalletPostedEvent event) {
+        Set<Subscriber> listening = subscribers.get(event.walletId());
+        if (listening == null || listening.isEmpty()) {
+            return;
+        }
+
+        BalanceResponse balance = new BalanceResponse();
+        balance.setBalance(event.balanceAfter());
+        balance.setWalletNumber(event.walletNumber());
+        balance.setLastUpdated(event.postedAt());
+        balance.setMessage("Balance updated");
+        balance.setStatus("Success");
+        for (Subscriber subscriber : listening) {
+            subscriber.offerBalance(event.walletVersion(), SseEmitter.event().name("balance").data(balance));
+        }
+
+        // the history row needs a lookup, which is only worth doing off the committing thread
+        sender.execute(() -> {
+            TransactionHistoryResponse row;
+            try {
+                row = dashboardService.getHistoryEntry(event.walletId(), event.postingId());
+            } catch (RuntimeException e) {
+                // rather than silently missing the row, the client reloads its history
+                log.warn("Could not load posting {} for the streams of wallet {}", event.postingId(), event.walletId(), e);
+                for (Subscriber subscriber : listening) {
+                    subscriber.offer(SseEmitter.event().name("resync").data(Map.of("postingId", event.postingId())));
+                }
+                return;
+            }
+            for (Subscriber subscriber : listening) {
+                subscriber.offer(SseEmitter.event().name("transaction").id(String.valueOf(event.postingId())).data(row));
+            }
+        });
+    }
+
+    // keeps proxies from closing idle streams and finds connections the client has dropped
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-interval:PT25S}")
+    public void heartbeat() {
+        for (Set<Subscriber> wallet : subscribers.values()) {
+            for (Subscriber subscriber : wallet) {
+                subscriber.offer(SseEmitter.event().comment("keep-alive"));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Set<Subscriber> wallet : subscribers.values()) {
+            for (Subscriber subscriber : wallet) {
+                subscriber.emitter.complete();
+            }
+        }
+        sender.shutdown();
+    }
+
+    // Sends are queued per connection and drained by at most one virtual thread, so events reach
+    // each client in the order they were offered. Two commits can still be offered in either order;
+    // a balance whose wallet version is not newer than the last one sent is stale and dropped.
+    // Posting ids would not do: with pooled sequences they only increase within one node.
+    private final class Subscriber {
+        private final Long walletId;
+        private final SseEmitter emitter;
+        private final Queue<Outgoing> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // only touched by the thread that holds draining
+        private long lastBalanceVersion;
+
+        private Subscriber(Long walletId, SseEmitter emitter) {
+            this.walletId = walletId;
+            this.emitter = emitter;
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            offerBalance(0, event);
+        }
+
+        private void offerBalance(long walletVersion, SseEmitter.SseEventBuilder event) {
+            pending.add(new Outgoing(walletVersion, event));
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Outgoing next;
+                while ((next = pending.poll()) != null) {
+                    if (next.balanceVersion() > 0) {
+                        if (next.balanceVersion() <= lastBalanceVersion) {
+                            continue;
+                        }
+                        lastBalanceVersion = next.balanceVersion();
+                    }
+                    try {
+                        emitter.send(next.event());
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Dropping stream for wallet {}: {}", walletId, e.getMessage());
+                        remove();
+                        emitter.completeWithError(e);
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void remove() {
+            pending.clear();
+            subscribers.computeIfPresent(walletId, (id, wallet) -> {
+                wallet.remove(this);
+                return wallet.isEmpty() ? null : wallet;
+            });
+        }
+    }
+
+    // balanceVersion is the wallet version a balance event reflects, 0 for every other event
+    private record Outgoing(long balanceVersion, SseEmitter.SseEventBuilder event) {
+    }
+}
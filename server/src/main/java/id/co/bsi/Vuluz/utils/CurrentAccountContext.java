@@ -0,0 +1,33 @@
+package id.co.bsi.Vuluz.utils;
+
+import id.co.bsi.Vuluz.repository.CurrentAccount;
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// The caller's user and wallet identifiers, looked up with one query the first time a request needs them.
+@Component
+@RequestScope
+public class CurrentAccountContext {
+    @Autowired
+    private SecurityUtility securityUtility;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private CurrentAccount account;
+
+    public CurrentAccount get() {
+        if (account == null) {
+            account = walletRepository.findCurrentAccount(securityUtility.getCurrentUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+        }
+        return account;
+    }
+
+    // the user id is in the token, so callers that only need it skip the account lookup
+    public Long getUserId() {
+        return account != null ? account.getUserId() : securityUtility.getCurrentUserId();
+    }
+}
@@ -0,0 +1,8 @@
+package id.co.bsi.Vuluz.utils;
+
+// Thrown when the credential hashing queue is full; controllers answer it with 429.
+public class HashingOverloadedException extends RuntimeException {
+    public HashingOverloadedException() {
+        super("Too many requests, please try again shortly");
+    }
+}
@@ -0,0 +1,15 @@
+package id.co.bsi.Vuluz.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Principal of a request authenticated by JWT; carries the verified claims so nothing re-parses the token.
+@Getter
+@ToString
+@AllArgsConstructor
+public class JwtPrincipal {
+    private final Long userId;
+    private final String email;
+    private final String tokenId;
+}
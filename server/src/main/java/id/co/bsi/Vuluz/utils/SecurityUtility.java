@@ -2,6 +2,8 @@ package id.co.bsi.Vuluz.utils;
 
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -12,14 +14,30 @@ public class SecurityUtility {
     private JwtUtility jwtUtility;
 
     public Long getCurrentUserId() {
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest();
-        String authHeader = request.getHeader("Authorization");
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal.getUserId();
+        }
+
+        // outside the JWT filter, e.g. an async task holding the request, fall back to the bearer token
+        String token = bearerToken();
+        return token != null ? this.jwtUtility.extractUserId(token) : null;
+    }
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            return this.jwtUtility.extractUserId(token);
+    // the jti of the access token the request was sent with
+    public String getCurrentTokenId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal.getTokenId();
         }
 
-        return null;
+        String token = bearerToken();
+        return token != null ? this.jwtUtility.parseClaims(token).getId() : null;
+    }
+
+    private String bearerToken() {
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest();
+        String authHeader = request.getHeader("Authorization");
+        return authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,3 @@
+-- Bumped by every balance update under the wallet's row lock, so it orders a wallet's postings
+-- across nodes. Posting ids cannot: each node hands them out from its own pooled block.
+ALTER TABLE wallet ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,41 @@
+-- Schema as it was created by ddl-auto=update before migrations were introduced.
+-- IF NOT EXISTS lets existing databases adopt it unchanged (they are baselined at version 0).
+
+CREATE TABLE IF NOT EXISTS users (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    avatar_url varchar(255),
+    email varchar(255),
+    full_name varchar(255),
+    gender varchar(255),
+    password varchar(255),
+    pin varchar(255),
+    user_name varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS wallet (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    balance numeric(38,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    user_id bigint UNIQUE REFERENCES users (id),
+    wallet_number bigint UNIQUE,
+    wallet_name varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS favorite (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id bigint REFERENCES users (id),
+    wallet_number bigint
+);
+
+CREATE TABLE IF NOT EXISTS transaction (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount numeric(20,2),
+    from_wallet_number bigint,
+    to_wallet_number bigint,
+    transaction_date timestamp(6),
+    description varchar(255),
+    payment_method varchar(255),
+    transaction_type varchar(255),
+    wallet_id bigint REFERENCES wallet (id)
+);
@@ -0,0 +1,70 @@
+-- Move transactions to the double-entry ledger: the transaction table becomes the journal and
+-- posting holds the debit and credit each entry applies to a wallet.
+
+CREATE TABLE posting (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    transaction_id bigint REFERENCES transaction (id),
+    wallet_id bigint REFERENCES wallet (id),
+    direction varchar(255),
+    amount numeric(20,2),
+    balance_after numeric(20,2),
+    posted_at timestamp(6)
+);
+
+-- Each transfer used to be stored twice ("Transfer Out" on the sender, "Transfer In" on the receiver).
+-- The "Transfer Out" row becomes the journal entry, the twin is dropped, and the postings get running
+-- balances replayed in date order. The replay starts from whatever the wallet held before its first
+-- movement (its balance minus all movements), so the last posting always lands on wallet.balance.
+INSERT INTO posting (transaction_id, wallet_id, direction, amount, balance_after, posted_at)
+SELECT m.transaction_id, m.wallet_id, m.direction, m.amount,
+       COALESCE(w.balance, 0)
+           - SUM(CASE WHEN m.direction = 'CREDIT' THEN m.amount ELSE -m.amount END)
+               OVER (PARTITION BY m.wallet_id)
+           + SUM(CASE WHEN m.direction = 'CREDIT' THEN m.amount ELSE -m.amount END)
+               OVER (PARTITION BY m.wallet_id ORDER BY m.posted_at, m.transaction_id ROWS UNBOUNDED PRECEDING),
+       m.posted_at
+FROM (
+    SELECT t.id AS transaction_id, t.wallet_id, 'CREDIT' AS direction, t.amount, t.transaction_date AS posted_at
+    FROM transaction t
+    WHERE t.transaction_type = 'Top Up'
+    UNION ALL
+    SELECT t.id, t.wallet_id, 'DEBIT', t.amount, t.transaction_date
+    FROM transaction t
+    WHERE t.transaction_type = 'Transfer Out'
+    UNION ALL
+    SELECT t.id, w.id, 'CREDIT', t.amount, t.transaction_date
+    FROM transaction t
+    JOIN wallet w ON w.wallet_number = t.to_wallet_number
+    WHERE t.transaction_type = 'Transfer Out'
+) m
+JOIN wallet w ON w.id = m.wallet_id;
+
+DELETE FROM transaction WHERE transaction_type = 'Transfer In';
+UPDATE transaction SET transaction_type = 'TRANSFER' WHERE transaction_type = 'Transfer Out';
+UPDATE transaction SET transaction_type = 'TOP_UP' WHERE transaction_type = 'Top Up';
+
+ALTER TABLE transaction DROP COLUMN wallet_id;
+
+CREATE TABLE idempotency_record (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id bigint,
+    idempotency_key varchar(255),
+    request_hash varchar(255),
+    response_body text,
+    created_at timestamp(6),
+    expires_at timestamp(6),
+    UNIQUE (user_id, idempotency_key)
+);
+
+CREATE INDEX idempotency_record_expires_at_idx ON idempotency_record (expires_at);
+
+-- filled for existing postings by CashflowRollupService on first start
+CREATE TABLE wallet_period_rollup (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    wallet_id bigint,
+    granularity varchar(255),
+    period_start date,
+    income numeric(20,2),
+    expense numeric(20,2),
+    UNIQUE (wallet_id, granularity, period_start)
+);
@@ -0,0 +1,10 @@
+-- history pages, summary and rollup rebuilds: one wallet's postings, newest first
+CREATE INDEX IF NOT EXISTS posting_wallet_id_posted_at_idx ON posting (wallet_id, posted_at DESC, id);
+
+-- journal entries by counterparty
+CREATE INDEX IF NOT EXISTS transaction_from_wallet_number_idx ON transaction (from_wallet_number);
+CREATE INDEX IF NOT EXISTS transaction_to_wallet_number_idx ON transaction (to_wallet_number);
+
+-- login and registration look users up by email; wallet.user_id and wallet.wallet_number
+-- are already backed by the unique constraints from V1
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_key ON users (email);
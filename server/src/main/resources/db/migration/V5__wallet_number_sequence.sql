@@ -0,0 +1,2 @@
+-- Drives WalletNumberAllocator: each value is one slot of the 900000 six-digit payloads.
+CREATE SEQUENCE wallet_number_seq START WITH 1 INCREMENT BY 1 MAXVALUE 900000;
@@ -0,0 +1,6 @@
+-- One favorite per (user, wallet number). Duplicates left by the old check-then-insert are folded
+-- into the oldest row first; the constraint's index also serves the favorites-by-user lookup.
+DELETE FROM favorite
+WHERE id NOT IN (SELECT MIN(id) FROM favorite GROUP BY user_id, wallet_number);
+
+ALTER TABLE favorite ADD CONSTRAINT favorite_user_id_wallet_number_key UNIQUE (user_id, wallet_number);
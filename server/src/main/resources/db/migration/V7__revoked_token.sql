@@ -0,0 +1,11 @@
+-- ids (jti) of access tokens that were logged out before they expired; rows are purged once
+-- the token would have expired anyway
+CREATE TABLE revoked_token (
+    jti varchar(64) PRIMARY KEY,
+    user_id bigint,
+    revoked_at timestamp(6) NOT NULL,
+    expires_at timestamp(6) NOT NULL
+);
+
+CREATE INDEX revoked_token_expires_at_idx ON revoked_token (expires_at);
+CREATE INDEX revoked_token_revoked_at_idx ON revoked_token (revoked_at);
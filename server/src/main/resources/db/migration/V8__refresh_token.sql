@@ -0,0 +1,17 @@
+-- refresh tokens are stored as SHA-256 hashes; every rotation of one login shares a family_id
+CREATE SEQUENCE refresh_token_seq START WITH 50 INCREMENT BY 50;
+
+CREATE TABLE refresh_token (
+    id bigint DEFAULT nextval('refresh_token_seq') PRIMARY KEY,
+    user_id bigint,
+    token_hash varchar(64) NOT NULL UNIQUE,
+    family_id varchar(36) NOT NULL,
+    created_at timestamp(6),
+    expires_at timestamp(6) NOT NULL,
+    used_at timestamp(6),
+    replaced_by varchar(64),
+    revoked boolean NOT NULL DEFAULT false
+);
+
+CREATE INDEX refresh_token_family_id_idx ON refresh_token (family_id);
+CREATE INDEX refresh_token_expires_at_idx ON refresh_token (expires_at);
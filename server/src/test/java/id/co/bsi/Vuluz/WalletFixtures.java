@@ -0,0 +1,83 @@
+package id.co.bsi.Vuluz;
+
+import id.co.bsi.Vuluz.model.User;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.UserRepository;
+import id.co.bsi.Vuluz.service.WalletNumberAllocator;
+import id.co.bsi.Vuluz.utils.JwtUtility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// Users with a wallet, and the request a logged-in call runs in, for the integration tests.
+@Component
+public class WalletFixtures {
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtility jwtUtility;
+
+    // the name makes email, user name and full name unique together with the wallet number
+    public Wallet createWallet(Long walletNumber, String name, BigDecimal balance) {
+        return createWallet(walletNumber, name, balance, null);
+    }
+
+    public Wallet createWallet(Long walletNumber, String name, BigDecimal balance, String pin) {
+        User user = new User();
+        user.setEmail(name.toLowerCase() + walletNumber + "@vuluz.test");
+        user.setUserName(name.toLowerCase() + walletNumber);
+        user.setFullName(name + " " + walletNumber);
+        if (pin != null) {
+            user.setPin(passwordEncoder.encode(pin));
+        }
+
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setWalletNumber(walletNumber);
+        wallet.setWalletName("Main Pocket");
+        wallet.setBalance(balance);
+        wallet.setCreatedAt(new Date());
+        wallet.setUpdatedAt(new Date());
+        user.setWallet(wallet);
+
+        return userRepository.save(user).getWallet();
+    }
+
+    public String token(User user) {
+        return jwtUtility.generateToken(
+                org.springframework.security.core.userdetails.User.withUsername(user.getEmail()).password("")
+                        .authorities("ROLE_USER").build(),
+                user.getId());
+    }
+
+    // binds a request carrying the user's bearer token to the current thread, as the JWT filter would see it
+    public void startRequest(User user) {
+        startRequest(token(user));
+    }
+
+    public void startRequest(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    // the seven-digit number for a six-digit payload, with the check digit transfers require
+    public static Long walletNumber(long payload) {
+        for (long digit = 0; digit < 10; digit++) {
+            if (WalletNumberAllocator.isWellFormed(payload * 10 + digit)) {
+                return payload * 10 + digit;
+            }
+        }
+        throw new IllegalArgumentException("No check digit for " + payload);
+    }
+}
@@ -0,0 +1,44 @@
+package id.co.bsi.Vuluz.controller;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.model.Wallet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class DashboardControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @Test
+    void tamperedHistoryCursorIsABadRequest() throws Exception {
+        Wallet alice = fixtures.createWallet(7700000L + System.nanoTime() % 100000, "Alice", BigDecimal.ZERO);
+        String token = "Bearer " + fixtures.token(alice.getUser());
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("1700000000000|12.00|1 OR 1=1".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : new String[]{tampered, "not-a-cursor"}) {
+            mockMvc.perform(get("/api/history").param("cursor", cursor).header("Authorization", token))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().string("Invalid cursor"));
+        }
+
+        mockMvc.perform(get("/api/history").header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+}
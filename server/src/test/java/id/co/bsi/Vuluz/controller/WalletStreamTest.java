@@ -0,0 +1,162 @@
+package id.co.bsi.Vuluz.controller;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.User;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.service.TransferEngine;
+import id.co.bsi.Vuluz.service.WalletPostedEvent;
+import id.co.bsi.Vuluz.service.WalletStreamService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class WalletStreamTest {
+    private static final Pattern BALANCE = Pattern.compile("\"balance\":(-?[0-9.]+)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private WalletStreamService walletStreamService;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @Test
+    void committedPostingsArePushedToTheWalletsStreams() throws Exception {
+        long suffix = System.nanoTime() % 100000;
+        Wallet alice = fixtures.createWallet(7800000L + suffix, "Alice", BigDecimal.valueOf(100));
+        Wallet bob = fixtures.createWallet(7900000L + suffix, "Bob", BigDecimal.valueOf(100));
+
+        MockHttpServletResponse aliceStream = open(alice.getUser());
+        MockHttpServletResponse bobStream = open(bob.getUser());
+        awaitContent(aliceStream, "\"balance\":100");
+
+        transferEngine.transfer(alice.getId(), alice.getWalletNumber(), bob.getId(), bob.getWalletNumber(),
+                BigDecimal.valueOf(40), "dinner");
+
+        awaitContent(aliceStream, "\"balance\":60.00");
+        awaitContent(aliceStream, "event:transaction");
+        awaitContent(aliceStream, "\"transactionType\":\"Transfer Out\"");
+        awaitContent(bobStream, "\"balance\":140.00");
+        awaitContent(bobStream, "\"transactionType\":\"Transfer In\"");
+        assertTrue(bobStream.getContentAsString().contains("dinner"));
+    }
+
+    @Test
+    void concurrentCreditsNeverMoveTheStreamedBalanceBackwards() throws Exception {
+        Wallet alice = fixtures.createWallet(7600000L + System.nanoTime() % 100000, "Alice", BigDecimal.ZERO);
+        MockHttpServletResponse stream = open(alice.getUser());
+        awaitContent(stream, "\"balance\":0");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> credits = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            credits.add(executor.submit(() -> transferEngine.topup(alice.getId(), alice.getWalletNumber(),
+                    BigDecimal.ONE, "Bank", "race")));
+        }
+        for (Future<?> credit : credits) {
+            credit.get();
+        }
+        executor.shutdown();
+        awaitContent(stream, "\"balance\":40.00");
+
+        // the first credit's commit arriving late must not overwrite the newer balance
+        Posting first = postingRepository.findByWalletId(alice.getId()).stream()
+                .min(Comparator.comparing(Posting::getBalanceAfter)).orElseThrow();
+        walletStreamService.onPosted(new WalletPostedEvent(alice.getId(), alice.getWalletNumber(), first.getId(),
+                first.getBalanceAfter(), first.getPostedAt(), 1));
+        // its history row is queued behind the balance event, so once it is sent the balance was handled too
+        awaitOccurrences(stream, "id:" + first.getId() + "\n", 2);
+
+        List<BigDecimal> balances = new ArrayList<>();
+        Matcher matcher = BALANCE.matcher(stream.getContentAsString());
+        while (matcher.find()) {
+            balances.add(new BigDecimal(matcher.group(1)));
+        }
+        for (int i = 1; i < balances.size(); i++) {
+            assertTrue(balances.get(i).compareTo(balances.get(i - 1)) > 0, "balance went backwards: " + balances);
+        }
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(balances.get(balances.size() - 1)));
+    }
+
+    @Test
+    void unloadableTransactionAsksTheClientToResync() throws Exception {
+        Wallet alice = fixtures.createWallet(7500000L + System.nanoTime() % 100000, "Alice", BigDecimal.ZERO);
+        MockHttpServletResponse stream = open(alice.getUser());
+        awaitContent(stream, "\"balance\":0");
+
+        walletStreamService.onPosted(new WalletPostedEvent(alice.getId(), alice.getWalletNumber(), -1L,
+                BigDecimal.TEN, new Date(), 1));
+
+        awaitContent(stream, "\"balance\":10");
+        awaitContent(stream, "event:resync");
+    }
+
+    @Test
+    void streamRequiresAToken() throws Exception {
+        mockMvc.perform(get("/api/stream")).andExpect(status().isUnauthorized());
+    }
+
+    private MockHttpServletResponse open(User user) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/stream").header("Authorization", "Bearer " + fixtures.token(user)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return result.getResponse();
+    }
+
+    private void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (response.getContentAsString().contains(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("stream never contained " + expected + ":\n" + response.getContentAsString());
+    }
+
+    private void awaitOccurrences(MockHttpServletResponse response, String expected, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            String content = response.getContentAsString();
+            if ((content.length() - content.replace(expected, "").length()) / expected.length() >= count) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("stream never contained " + expected + " " + count + " times:\n" + response.getContentAsString());
+    }
+}
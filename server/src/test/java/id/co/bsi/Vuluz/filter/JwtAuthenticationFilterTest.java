@@ -0,0 +1,116 @@
+package id.co.bsi.Vuluz.filter;
+
+import id.co.bsi.Vuluz.model.User;
+import id.co.bsi.Vuluz.repository.UserRepository;
+import id.co.bsi.Vuluz.utils.JwtPrincipal;
+import id.co.bsi.Vuluz.utils.JwtUtility;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class JwtAuthenticationFilterTest {
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Autowired
+    private JwtUtility jwtUtility;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.jwt.secret}")
+    private String secret;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void requestIsAuthenticatedFromClaimsWithoutTouchingTheDatabase() throws Exception {
+        String token = jwtUtility.generateToken(
+                org.springframework.security.core.userdetails.User.withUsername("claims@vuluz.test").password("")
+                        .authorities("ROLE_USER").build(),
+                77L);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Authentication authentication = filter(token);
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        JwtPrincipal principal = assertInstanceOf(JwtPrincipal.class, authentication.getPrincipal());
+        assertEquals(77L, principal.getUserId());
+        assertEquals("claims@vuluz.test", principal.getEmail());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    void tokensWithoutRolesFallBackToTheUserStore() throws Exception {
+        User user = new User();
+        user.setEmail("legacy" + System.nanoTime() + "@vuluz.test");
+        user.setPassword("x");
+        user = userRepository.save(user);
+        String legacyToken = Jwts.builder()
+                .subject(user.getEmail())
+                .claim("userId", user.getId())
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .compact();
+
+        Authentication authentication = filter(legacyToken);
+
+        assertEquals(user.getId(), ((JwtPrincipal) authentication.getPrincipal()).getUserId());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    void scopedTokensAreNotAcceptedAsLogins() throws Exception {
+        String unlockToken = jwtUtility.generateScopedToken(77L, "pin-unlock", Map.of("pin", "x"), Duration.ofMinutes(5));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/balance");
+        request.addHeader("Authorization", "Bearer " + unlockToken);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        jwtAuthenticationFilter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/balance");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        jwtAuthenticationFilter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
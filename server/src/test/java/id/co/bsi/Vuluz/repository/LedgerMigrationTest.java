@@ -0,0 +1,98 @@
+package id.co.bsi.Vuluz.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Upgrades a database holding pre-ledger rows and checks the journal and postings it ends up with.
+class LedgerMigrationTest {
+
+    @Test
+    void legacyTransactionsBecomeJournalEntriesWithPostings() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ledger-migration;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+        jdbc.update("INSERT INTO users (id, email, full_name) VALUES (1, 'a@vuluz.test', 'Alice'), (2, 'b@vuluz.test', 'Bob')");
+        jdbc.update("INSERT INTO wallet (id, user_id, wallet_number, balance) VALUES (1, 1, 1000001, 70), (2, 2, 1000002, 30)");
+        jdbc.update("INSERT INTO transaction (id, wallet_id, transaction_type, amount, from_wallet_number, to_wallet_number, transaction_date) VALUES " +
+                "(1, 1, 'Top Up', 100, 1000001, 1000001, TIMESTAMP '2025-01-01 10:00:00'), " +
+                "(2, 1, 'Transfer Out', 30, 1000001, 1000002, TIMESTAMP '2025-01-02 10:00:00'), " +
+                "(3, 2, 'Transfer In', 30, 1000001, 1000002, TIMESTAMP '2025-01-02 10:00:00')");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        assertEquals(List.of("TOP_UP", "TRANSFER"),
+                jdbc.queryForList("SELECT transaction_type FROM transaction ORDER BY id", String.class));
+
+        List<Map<String, Object>> postings = jdbc.queryForList(
+                "SELECT transaction_id, wallet_id, direction, amount, balance_after FROM posting ORDER BY transaction_id, wallet_id");
+        assertEquals(3, postings.size());
+        assertPosting(postings.get(0), 1, 1, "CREDIT", 100, 100);
+        assertPosting(postings.get(1), 2, 1, "DEBIT", 30, 70);
+        assertPosting(postings.get(2), 2, 2, "CREDIT", 30, 30);
+    }
+
+    @Test
+    void runningBalancesEndOnTheWalletBalance() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ledger-opening-balance;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+        jdbc.update("INSERT INTO users (id, email, full_name) VALUES (1, 'a@vuluz.test', 'Alice'), (2, 'b@vuluz.test', 'Bob')");
+        // Alice opened with 500 that no transaction accounts for; Bob's wallet was adjusted by hand to 80
+        jdbc.update("INSERT INTO wallet (id, user_id, wallet_number, balance) VALUES (1, 1, 1000001, 570), (2, 2, 1000002, 80)");
+        jdbc.update("INSERT INTO transaction (id, wallet_id, transaction_type, amount, from_wallet_number, to_wallet_number, transaction_date) VALUES " +
+                "(1, 1, 'Top Up', 100, 1000001, 1000001, TIMESTAMP '2025-01-01 10:00:00'), " +
+                "(2, 1, 'Transfer Out', 30, 1000001, 1000002, TIMESTAMP '2025-01-02 10:00:00'), " +
+                "(3, 2, 'Transfer In', 30, 1000001, 1000002, TIMESTAMP '2025-01-02 10:00:00')");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        List<Map<String, Object>> postings = jdbc.queryForList(
+                "SELECT transaction_id, wallet_id, direction, amount, balance_after FROM posting ORDER BY transaction_id, wallet_id");
+        assertPosting(postings.get(0), 1, 1, "CREDIT", 100, 600);
+        assertPosting(postings.get(1), 2, 1, "DEBIT", 30, 570);
+        assertPosting(postings.get(2), 2, 2, "CREDIT", 30, 80);
+    }
+
+    @Test
+    void identityColumnsBecomeSequencesPastTheExistingIds() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:sequence-migration;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        Flyway.configure().dataSource(dataSource).target("3").load().migrate();
+        jdbc.update("INSERT INTO users (id, email, full_name) VALUES (7, 'a@vuluz.test', 'Alice'), (120, 'b@vuluz.test', 'Bob')");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        assertEquals(List.of(7L, 120L), jdbc.queryForList("SELECT id FROM users ORDER BY id", Long.class));
+        // the first block Hibernate allocates is (120, 170]
+        assertEquals(170L, jdbc.queryForObject("SELECT nextval('users_seq')", Long.class));
+        // an empty table starts with the block [1, 50]
+        assertEquals(50L, jdbc.queryForObject("SELECT nextval('posting_seq')", Long.class));
+
+        // plain inserts draw from the same sequence and never land in a block Hibernate holds
+        jdbc.update("INSERT INTO users (email, full_name) VALUES ('c@vuluz.test', 'Carol')");
+        assertEquals(220L, jdbc.queryForObject("SELECT id FROM users WHERE email = 'c@vuluz.test'", Long.class));
+    }
+
+    private void assertPosting(Map<String, Object> row, long transactionId, long walletId, String direction,
+                               long amount, long balanceAfter) {
+        assertEquals(transactionId, ((Number) row.get("transaction_id")).longValue());
+        assertEquals(walletId, ((Number) row.get("wallet_id")).longValue());
+        assertEquals(direction, row.get("direction"));
+        assertEquals(0, BigDecimal.valueOf(amount).compareTo((BigDecimal) row.get("amount")));
+        assertEquals(0, BigDecimal.valueOf(balanceAfter).compareTo((BigDecimal) row.get("balance_after")));
+    }
+}
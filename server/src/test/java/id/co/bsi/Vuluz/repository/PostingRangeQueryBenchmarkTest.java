@@ -0,0 +1,77 @@
+package id.co.bsi.Vuluz.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Month filter written with MONTH()/YEAR() against the [from, to) range it was replaced with,
+// on a million postings. Run with: mvn test -Dtest=PostingRangeQueryBenchmarkTest -Dbenchmarks=true
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PostingRangeQueryBenchmarkTest {
+    private static final int WALLETS = 10;
+    private static final int POSTINGS = 1_000_000;
+    private static final int ROUNDS = 200;
+
+    private static final String FUNCTION_FORM = "SELECT COUNT(*) AS n, SUM(p.amount) AS total FROM posting p " +
+            "JOIN wallet w ON w.id = p.wallet_id " +
+            "WHERE w.user_id = ? AND MONTH(p.posted_at) = ? AND YEAR(p.posted_at) = ?";
+
+    private static final String RANGE_FORM = "SELECT COUNT(*) AS n, SUM(p.amount) AS total FROM posting p " +
+            "WHERE p.wallet_id = ? AND p.posted_at >= ? AND p.posted_at < ?";
+
+    @Test
+    void rangeFormAgainstFunctionForm() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:range-benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        jdbc.update("INSERT INTO users (id, email) SELECT x, 'bench' || x || '@vuluz.test' FROM SYSTEM_RANGE(1, " + WALLETS + ") AS r(x)");
+        jdbc.update("INSERT INTO wallet (id, user_id, wallet_number, balance) SELECT x, x, 1000000 + x, 0 FROM SYSTEM_RANGE(1, " + WALLETS + ") AS r(x)");
+        // two years of postings spread evenly over the wallets
+        jdbc.update("INSERT INTO posting (wallet_id, direction, amount, balance_after, posted_at) " +
+                "SELECT MOD(x, " + WALLETS + ") + 1, 'CREDIT', MOD(x, 1000) + 1, 0, " +
+                "DATEADD('MINUTE', x, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, " + POSTINGS + ") AS r(x)");
+        jdbc.execute("ANALYZE");
+
+        long walletId = 3;
+        int month = 6;
+        int year = 2024;
+        Timestamp from = Timestamp.valueOf(LocalDateTime.of(year, month, 1, 0, 0));
+        Timestamp to = Timestamp.valueOf(LocalDateTime.of(year, month + 1, 1, 0, 0));
+
+        Map<String, Object> functionResult = jdbc.queryForMap(FUNCTION_FORM, walletId, month, year);
+        Map<String, Object> rangeResult = jdbc.queryForMap(RANGE_FORM, walletId, from, to);
+        assertEquals(functionResult, rangeResult);
+
+        long functionNanos = time(() -> jdbc.queryForMap(FUNCTION_FORM, walletId, month, year));
+        long rangeNanos = time(() -> jdbc.queryForMap(RANGE_FORM, walletId, from, to));
+
+        log.info("{} postings, {} rows in the month", POSTINGS, ((Number) rangeResult.get("n")).longValue());
+        log.info("MONTH()/YEAR(): {} ms per query\n{}", String.format("%.3f", functionNanos / 1e6 / ROUNDS),
+                jdbc.queryForObject("EXPLAIN " + FUNCTION_FORM, String.class, walletId, month, year));
+        log.info("[from, to):     {} ms per query\n{}", String.format("%.3f", rangeNanos / 1e6 / ROUNDS),
+                jdbc.queryForObject("EXPLAIN " + RANGE_FORM, String.class, walletId, from, to));
+    }
+
+    private long time(Runnable query) {
+        for (int i = 0; i < ROUNDS / 10; i++) {
+            query.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            query.run();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,74 @@
+package id.co.bsi.Vuluz.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Fails when one of the hot queries can no longer be answered from an index.
+@SpringBootTest
+class QueryPlanTest {
+    private static final Map<String, String> HOT_QUERIES = Map.of(
+            "history page", "SELECT p.id FROM posting p WHERE p.wallet_id = 1 ORDER BY p.posted_at DESC, p.id DESC LIMIT 21",
+            "summary", "SELECT SUM(p.amount) FROM posting p WHERE p.wallet_id = 1",
+            "counterparty names", "SELECT w.wallet_number, u.full_name FROM wallet w JOIN users u ON u.id = w.user_id WHERE w.wallet_number IN (1000001, 1000002)",
+            "login", "SELECT u.id FROM users u WHERE u.email = 'someone@vuluz.test'",
+            "wallet of user", "SELECT w.id FROM wallet w WHERE w.user_id = 1",
+            "sent by wallet", "SELECT t.id FROM transaction t WHERE t.from_wallet_number = 1000001",
+            "received by wallet", "SELECT t.id FROM transaction t WHERE t.to_wallet_number = 1000001",
+            "cashflow", "SELECT r.income, r.expense FROM wallet_period_rollup r WHERE r.wallet_id = 1 AND r.granularity = 'MONTH'"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void hotQueriesUseIndexesOnH2() {
+        HOT_QUERIES.forEach((name, sql) -> {
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+            assertFalse(plan.contains("tableScan"), name + " scans a whole table:\n" + plan);
+        });
+    }
+
+    // Runs against a scratch PostgreSQL database, e.g.
+    // VULUZ_EXPLAIN_POSTGRES_URL=jdbc:postgresql://localhost:5432/vuluz_explain mvn test -Dtest=QueryPlanTest
+    @Test
+    @EnabledIfEnvironmentVariable(named = "VULUZ_EXPLAIN_POSTGRES_URL", matches = ".+")
+    void hotQueriesUseIndexesOnPostgres() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getenv("VULUZ_EXPLAIN_POSTGRES_URL"),
+                System.getenv().getOrDefault("VULUZ_EXPLAIN_POSTGRES_USERNAME", "postgres"),
+                System.getenv().getOrDefault("VULUZ_EXPLAIN_POSTGRES_PASSWORD", "pa55word"));
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        JdbcTemplate postgres = new JdbcTemplate(dataSource);
+        HOT_QUERIES.forEach((name, sql) -> {
+            // small tables are cheaper to scan, so only ask whether an index path exists at all
+            List<String> plan = postgres.execute((Connection connection) -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET enable_seqscan = off");
+                    ResultSet rows = statement.executeQuery("EXPLAIN " + sql);
+                    List<String> lines = new ArrayList<>();
+                    while (rows.next()) {
+                        lines.add(rows.getString(1));
+                    }
+                    return lines;
+                }
+            });
+            String text = String.join("\n", plan);
+            assertFalse(text.contains("Seq Scan"), name + " scans a whole table:\n" + text);
+        });
+    }
+}
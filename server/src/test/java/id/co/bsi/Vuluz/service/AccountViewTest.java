@@ -0,0 +1,74 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.response.BalanceResponse;
+import id.co.bsi.Vuluz.dto.response.ProfileResponse;
+import id.co.bsi.Vuluz.model.Wallet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class AccountViewTest {
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    private Wallet wallet;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        wallet = fixtures.createWallet(7500000L + System.nanoTime() % 100000, "View", BigDecimal.valueOf(1234.5));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        fixtures.startRequest(wallet.getUser());
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void balanceIsOneQueryWithoutEntities() {
+        BalanceResponse balance = dashboardService.getBalance();
+
+        assertEquals(0, BigDecimal.valueOf(1234.5).compareTo(balance.getBalance()));
+        assertEquals(wallet.getWalletNumber(), balance.getWalletNumber());
+        assertEquals(wallet.getUser().getFullName(), balance.getAccountName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void profileIsOneQueryWithoutEntities() {
+        ProfileResponse profile = profileService.getProfileDetails();
+
+        assertEquals(wallet.getUser().getEmail(), profile.getEmail());
+        assertEquals("Main Pocket", profile.getWalletName());
+        assertEquals(wallet.getWalletNumber(), profile.getWalletNumber());
+        assertEquals(0, BigDecimal.valueOf(1234.5).compareTo(profile.getWalletBalance()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
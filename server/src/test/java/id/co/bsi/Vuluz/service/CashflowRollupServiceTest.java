@@ -0,0 +1,91 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.model.RollupGranularity;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.model.WalletPeriodRollup;
+import id.co.bsi.Vuluz.repository.WalletPeriodRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CashflowRollupServiceTest {
+    @Autowired
+    private CashflowRollupService cashflowRollupService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private WalletPeriodRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @Test
+    void transfersKeepRollupsInStepWithPostings() {
+        long suffix = System.nanoTime() % 100000;
+        Wallet alice = fixtures.createWallet(6000000L + suffix, "Alice", BigDecimal.ZERO);
+        Wallet bob = fixtures.createWallet(6100000L + suffix, "Bob", BigDecimal.ZERO);
+
+        transferEngine.topup(alice.getId(), alice.getWalletNumber(), BigDecimal.valueOf(1000), "Bank", "salary");
+        transferEngine.transfer(alice.getId(), alice.getWalletNumber(), bob.getId(), bob.getWalletNumber(), BigDecimal.valueOf(250), "rent");
+        transferEngine.transfer(bob.getId(), bob.getWalletNumber(), alice.getId(), alice.getWalletNumber(), BigDecimal.valueOf(40), "refund");
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            List<WalletPeriodRollup> rollups = rollupRepository.findByWalletIdAndGranularity(alice.getId(), granularity);
+            assertEquals(1, rollups.size());
+            assertEquals(CashflowRollupService.periodStart(LocalDate.now(), granularity), rollups.get(0).getPeriodStart());
+            assertEquals(0, BigDecimal.valueOf(1040).compareTo(rollups.get(0).getIncome()));
+            assertEquals(0, BigDecimal.valueOf(250).compareTo(rollups.get(0).getExpense()));
+        }
+
+        assertFalse(cashflowRollupService.checkConsistency().contains(alice.getId()));
+        assertFalse(cashflowRollupService.checkConsistency().contains(bob.getId()));
+    }
+
+    @Test
+    void rebuildRestoresRollupsFromPostings() {
+        long suffix = System.nanoTime() % 100000;
+        Wallet alice = fixtures.createWallet(6200000L + suffix, "Alice", BigDecimal.ZERO);
+
+        transferEngine.topup(alice.getId(), alice.getWalletNumber(), BigDecimal.valueOf(300), "Bank", "salary");
+        transferEngine.topup(alice.getId(), alice.getWalletNumber(), BigDecimal.valueOf(200), "Bank", "bonus");
+        List<WalletPeriodRollup> before = rollupRepository.findByWalletIdAndGranularity(alice.getId(), RollupGranularity.MONTH);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> rollupRepository.deleteByWalletId(alice.getId()));
+        assertTrue(cashflowRollupService.checkConsistency().contains(alice.getId()));
+
+        cashflowRollupService.rebuild(alice.getId());
+
+        assertFalse(cashflowRollupService.checkConsistency().contains(alice.getId()));
+        List<WalletPeriodRollup> after = rollupRepository.findByWalletIdAndGranularity(alice.getId(), RollupGranularity.MONTH);
+        assertEquals(1, after.size());
+        assertEquals(before.get(0).getPeriodStart(), after.get(0).getPeriodStart());
+        assertEquals(0, before.get(0).getIncome().compareTo(after.get(0).getIncome()));
+    }
+
+    @Test
+    void periodStartIsTheFirstDayOfThePeriod() {
+        LocalDate date = LocalDate.of(2025, 8, 14); // Thursday
+        assertEquals(date, CashflowRollupService.periodStart(date, RollupGranularity.DAY));
+        assertEquals(LocalDate.of(2025, 8, 11), CashflowRollupService.periodStart(date, RollupGranularity.WEEK));
+        assertEquals(LocalDate.of(2025, 8, 1), CashflowRollupService.periodStart(date, RollupGranularity.MONTH));
+        assertEquals(LocalDate.of(2025, 7, 1), CashflowRollupService.periodStart(date, RollupGranularity.QUARTER));
+    }
+}
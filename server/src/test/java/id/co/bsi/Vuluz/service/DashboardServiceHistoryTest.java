@@ -0,0 +1,131 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
+import id.co.bsi.Vuluz.dto.response.TransactionHistoryPageResponse;
+import id.co.bsi.Vuluz.model.Wallet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class DashboardServiceHistoryTest {
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    private Wallet alice;
+    private Wallet bob;
+
+    @BeforeEach
+    void setUp() {
+        long suffix = System.nanoTime() % 100000;
+        alice = fixtures.createWallet(8000000L + suffix, "Alice", BigDecimal.ZERO);
+        bob = fixtures.createWallet(8100000L + suffix, "Bob", BigDecimal.ZERO);
+
+        // equal amounts and same-millisecond timestamps exercise the id tie-breaker
+        transferEngine.topup(alice.getId(), alice.getWalletNumber(), BigDecimal.valueOf(500), "Bank", "salary");
+        transferEngine.topup(bob.getId(), bob.getWalletNumber(), BigDecimal.valueOf(500), "Bank", "salary");
+        for (int i = 0; i < 6; i++) {
+            transferEngine.transfer(alice.getId(), alice.getWalletNumber(), bob.getId(), bob.getWalletNumber(),
+                    BigDecimal.valueOf(10 * (i % 3 + 1)), "rent " + i);
+            transferEngine.transfer(bob.getId(), bob.getWalletNumber(), alice.getId(), alice.getWalletNumber(),
+                    BigDecimal.valueOf(15), "refund " + i);
+        }
+        fixtures.startRequest(alice.getUser());
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void pagesConcatenateToTheFullHistoryForEverySortOrder() {
+        String[] sortOrders = {"", "date_asc", "amount_asc", "amount_desc", "amount_asc_date_desc",
+                "amount_desc_date_asc", "date_asc_amount_asc", "date_desc_amount_desc"};
+        for (String sortOrder : sortOrders) {
+            List<TransactionHistoryResponse> full = history("", "", sortOrder, 100, null).getData();
+            assertEquals(13, full.size());
+
+            List<TransactionHistoryResponse> paged = new ArrayList<>();
+            String cursor = null;
+            do {
+                TransactionHistoryPageResponse page = history("", "", sortOrder, 4, cursor);
+                assertTrue(page.getData().size() <= 4);
+                paged.addAll(page.getData());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertEquals(ids(full), ids(paged), "sort order '" + sortOrder + "'");
+        }
+    }
+
+    @Test
+    void filtersAreAppliedInTheQuery() {
+        assertEquals(1, history("Top Up", "", "", 100, null).getData().size());
+        assertEquals(6, history("TRANSFER_IN", "", "", 100, null).getData().size());
+        assertEquals(6, history("Transfer Out", "", "", 100, null).getData().size());
+        assertEquals(0, history("Cashback", "", "", 100, null).getData().size());
+        assertEquals(2, history("", "rent 1", "", 100, null).getData().size() + history("", "refund 1", "", 100, null).getData().size());
+        assertEquals(12, history("", "bob", "", 100, null).getData().size());
+
+        TransactionHistoryPageResponse last = history("Top Up", "", "", 1, null);
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithPageSize() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // each page is its own request, so both include the current account lookup
+        fixtures.startRequest(alice.getUser());
+        statistics.clear();
+        assertEquals(2, history("", "", "", 2, null).getData().size());
+        long smallPage = statistics.getPrepareStatementCount();
+
+        fixtures.startRequest(alice.getUser());
+        statistics.clear();
+        assertEquals(13, history("", "", "", 100, null).getData().size());
+        long fullPage = statistics.getPrepareStatementCount();
+
+        assertEquals(smallPage, fullPage);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> history("", "", "", 10, "not-a-cursor"));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+
+    private TransactionHistoryPageResponse history(String type, String search, String sortOrder, int size, String cursor) {
+        return dashboardService.getTransactionHistory(type, null, null, search, sortOrder, size, cursor);
+    }
+
+    private List<Long> ids(List<TransactionHistoryResponse> rows) {
+        return rows.stream().map(TransactionHistoryResponse::getId).toList();
+    }
+}
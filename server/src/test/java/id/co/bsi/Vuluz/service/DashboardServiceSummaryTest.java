@@ -0,0 +1,151 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.TransactionHistoryResponse;
+import id.co.bsi.Vuluz.dto.TransactionSummaryResponse;
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.PostingDirection;
+import id.co.bsi.Vuluz.model.Transaction;
+import id.co.bsi.Vuluz.model.TransactionType;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class DashboardServiceSummaryTest {
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private CashflowRollupService cashflowRollupService;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void summaryIsAggregatedInTheDatabase() {
+        Wallet wallet = fixtures.createWallet(7000000L + System.nanoTime() % 100000, "Summary", BigDecimal.valueOf(1000));
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+
+        post(wallet, PostingDirection.CREDIT, 700, thisMonth.minusMonths(2));
+        post(wallet, PostingDirection.CREDIT, 400, thisMonth.minusMonths(1));
+        post(wallet, PostingDirection.DEBIT, 150, thisMonth.minusMonths(1).plusDays(20));
+        post(wallet, PostingDirection.DEBIT, 50, thisMonth);
+        post(wallet, PostingDirection.CREDIT, 100, thisMonth);
+
+        fixtures.startRequest(wallet.getUser());
+        TransactionSummaryResponse summary = dashboardService.getTransactionSummary();
+
+        assertAmount(1200, summary.getTotalIncome());
+        assertAmount(200, summary.getTotalExpense());
+        assertAmount(1000, summary.getNetIncome());
+        assertAmount(1000, summary.getCurrentBalance());
+        assertAmount(250, summary.getBalanceChange());
+        assertAmount(750, summary.getPreviousMonthBalance());
+    }
+
+    @Test
+    void cashflowIsReadFromRebuiltRollups() {
+        Wallet wallet = fixtures.createWallet(7200000L + System.nanoTime() % 100000, "Summary", BigDecimal.ZERO);
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+
+        post(wallet, PostingDirection.CREDIT, 400, thisMonth.minusMonths(1));
+        post(wallet, PostingDirection.DEBIT, 150, thisMonth.minusMonths(1).plusDays(3));
+        post(wallet, PostingDirection.CREDIT, 100, thisMonth);
+        cashflowRollupService.rebuild(wallet.getId());
+
+        fixtures.startRequest(wallet.getUser());
+        List<Map<String, Object>> monthly = dashboardService.getCashflowData("monthly");
+
+        String lastMonthLabel = thisMonth.minusMonths(1).getMonth().toString().substring(0, 3);
+        Map<String, Object> lastMonth = monthly.stream()
+                .filter(row -> lastMonthLabel.equals(row.get("label")))
+                .findFirst().orElseThrow();
+        assertAmount(400, (BigDecimal) lastMonth.get("income"));
+        assertAmount(150, (BigDecimal) lastMonth.get("expense"));
+        assertAmount(250, (BigDecimal) lastMonth.get("net"));
+        assertEquals(2, monthly.size());
+    }
+
+    @Test
+    void monthlyStatementCoversExactlyOneCalendarMonth() {
+        Wallet wallet = fixtures.createWallet(7300000L + System.nanoTime() % 100000, "Summary", BigDecimal.ZERO);
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+
+        post(wallet, PostingDirection.CREDIT, 10, lastMonth.minusMonths(1).atEndOfMonth());
+        post(wallet, PostingDirection.CREDIT, 20, lastMonth.atDay(1));
+        post(wallet, PostingDirection.DEBIT, 5, lastMonth.atEndOfMonth());
+        post(wallet, PostingDirection.CREDIT, 40, lastMonth.plusMonths(1).atDay(1));
+
+        fixtures.startRequest(wallet.getUser());
+        List<TransactionHistoryResponse> statement = dashboardService.getMonthlyStatement(lastMonth);
+
+        assertEquals(2, statement.size());
+        assertAmount(20, statement.get(0).getAmount());
+        assertAmount(-5, statement.get(1).getAmount());
+    }
+
+    @Test
+    void walletWithoutPostingsHasZeroTotals() {
+        Wallet wallet = fixtures.createWallet(7100000L + System.nanoTime() % 100000, "Summary", BigDecimal.ZERO);
+
+        fixtures.startRequest(wallet.getUser());
+        TransactionSummaryResponse summary = dashboardService.getTransactionSummary();
+
+        assertAmount(0, summary.getTotalIncome());
+        assertAmount(0, summary.getTotalExpense());
+        assertAmount(0, summary.getBalanceChange());
+    }
+
+    private void post(Wallet wallet, PostingDirection direction, long amount, LocalDate date) {
+        Date postedAt = Date.from(date.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(direction == PostingDirection.CREDIT ? TransactionType.TOP_UP : TransactionType.TRANSFER);
+        transaction.setAmount(BigDecimal.valueOf(amount));
+        transaction.setFromWalletNumber(wallet.getWalletNumber());
+        transaction.setToWalletNumber(wallet.getWalletNumber());
+        transaction.setTransactionDate(postedAt);
+        transaction.setPaymentMethod("Vuluz");
+        transactionRepository.save(transaction);
+
+        Posting posting = new Posting();
+        posting.setTransaction(transaction);
+        posting.setWallet(wallet);
+        posting.setDirection(direction);
+        posting.setAmount(BigDecimal.valueOf(amount));
+        posting.setBalanceAfter(BigDecimal.ZERO);
+        posting.setPostedAt(postedAt);
+        postingRepository.save(posting);
+    }
+
+    private void assertAmount(long expected, BigDecimal actual) {
+        assertEquals(0, BigDecimal.valueOf(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
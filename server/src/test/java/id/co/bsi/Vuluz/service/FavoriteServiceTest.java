@@ -0,0 +1,97 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.request.AddFavoriteRequest;
+import id.co.bsi.Vuluz.dto.response.GetFavoriteResponse;
+import id.co.bsi.Vuluz.model.Favorite;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.FavoriteRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class FavoriteServiceTest {
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private FavoriteRepository favoriteRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void favoritesAreListedWithOneStatement() {
+        long suffix = System.nanoTime() % 10000;
+        Wallet owner = fixtures.createWallet(9000000L + suffix * 10, "Owner", BigDecimal.ZERO);
+        for (int i = 1; i <= 5; i++) {
+            Wallet friend = fixtures.createWallet(9000000L + suffix * 10 + i, "Friend", BigDecimal.ZERO);
+            fixtures.startRequest(owner.getUser());
+            transactionService.addFavoriteResponse(favorite(friend.getWalletNumber()));
+        }
+        // wallet numbers of closed accounts stay listed, without a name
+        fixtures.startRequest(owner.getUser());
+        Favorite orphan = new Favorite();
+        orphan.setUser(owner.getUser());
+        orphan.setWalletNumber(1L);
+        favoriteRepository.save(orphan);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        fixtures.startRequest(owner.getUser());
+        statistics.clear();
+        List<GetFavoriteResponse> favorites = transactionService.getFavorites();
+
+        assertEquals(6, favorites.size());
+        assertEquals("Friend " + (owner.getWalletNumber() + 1), favorites.get(0).getOwnerName());
+        assertEquals("Main Pocket", favorites.get(0).getWalletName());
+        assertNull(favorites.get(5).getOwnerName());
+        // the per-request account lookup plus the favorites join
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void duplicateFavoriteIsRejectedByTheConstraint() {
+        long suffix = System.nanoTime() % 10000;
+        Wallet owner = fixtures.createWallet(9100000L + suffix * 10, "Owner", BigDecimal.ZERO);
+        Wallet friend = fixtures.createWallet(9100000L + suffix * 10 + 1, "Friend", BigDecimal.ZERO);
+
+        fixtures.startRequest(owner.getUser());
+        transactionService.addFavoriteResponse(favorite(friend.getWalletNumber()));
+
+        fixtures.startRequest(owner.getUser());
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> transactionService.addFavoriteResponse(favorite(friend.getWalletNumber())));
+        assertEquals("Wallet number already added to favorites", e.getMessage());
+
+        fixtures.startRequest(owner.getUser());
+        assertEquals(1, transactionService.getFavorites().size());
+    }
+
+    private AddFavoriteRequest favorite(Long walletNumber) {
+        AddFavoriteRequest request = new AddFavoriteRequest();
+        request.setWalletNumber(walletNumber);
+        return request;
+    }
+}
@@ -0,0 +1,227 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.request.TopUpRequest;
+import id.co.bsi.Vuluz.dto.response.TopUpResponse;
+import id.co.bsi.Vuluz.model.IdempotencyRecord;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.IdempotencyRecordRepository;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class IdempotencyServiceTest {
+    private static final String PIN = "123456";
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(50000);
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void completedKeyIsReplayedWithoutMovingMoneyAgain() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+
+        TopUpResponse first = topUp(alice, key, topUp(PIN));
+        TopUpResponse replayed = topUp(alice, key, topUp(PIN));
+
+        assertEquals("Top Up Success", first.getMessage());
+        assertEquals(first, replayed);
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+        assertEquals(1, postingRepository.findByWalletId(alice.getId()).size());
+        assertNotNull(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(alice.getUser().getId(), key)
+                .orElseThrow().getResponseBody());
+    }
+
+    @Test
+    void differentBodyUnderTheSameKeyIsRejected() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+        topUp(alice, key, topUp(PIN));
+
+        TopUpRequest other = topUp(PIN);
+        other.setAmount(AMOUNT.add(BigDecimal.ONE));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> topUp(alice, key, other));
+
+        assertEquals("Idempotency-Key was already used for a different request", e.getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+    }
+
+    @Test
+    void concurrentDuplicateIsRejectedWhileTheFirstIsInFlight() throws Exception {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<TopUpResponse> first = CompletableFuture.supplyAsync(() -> {
+            fixtures.startRequest(alice.getUser());
+            try {
+                return idempotencyService.execute(key, "topup", topUp(PIN), TopUpResponse.class, claimId -> {
+                    claimed.countDown();
+                    await(release);
+                    return transactionService.topup(topUp(PIN), null, claimId);
+                });
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        });
+
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> topUp(alice, key, topUp(PIN)));
+        assertEquals("A request with this Idempotency-Key is still being processed", e.getMessage());
+
+        release.countDown();
+        assertEquals("Top Up Success", first.get(10, TimeUnit.SECONDS).getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+    }
+
+    @Test
+    void failureBeforeTheEngineReleasesTheKey() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> topUp(alice, key, topUp("000000")));
+        assertEquals("Invalid PIN", e.getMessage());
+        assertTrue(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(alice.getUser().getId(), key).isEmpty());
+
+        // the corrected request may reuse the key
+        assertEquals("Top Up Success", topUp(alice, key, topUp(PIN)).getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+    }
+
+    @Test
+    void failureAfterTheEngineCommittedKeepsTheOutcome() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+
+        fixtures.startRequest(alice.getUser());
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(key, "topup", topUp(PIN),
+                TopUpResponse.class, claimId -> {
+                    transactionService.topup(topUp(PIN), null, claimId);
+                    throw new IllegalStateException("connection lost after commit");
+                }));
+
+        // the retry replays the committed outcome instead of crediting twice
+        assertEquals("Top Up Success", topUp(alice, key, topUp(PIN)).getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+        assertEquals(1, postingRepository.findByWalletId(alice.getId()).size());
+    }
+
+    @Test
+    void abandonedClaimIsTakenOverAfterTheProcessingTimeout() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+        // left behind by a process that died between claiming the key and finishing the top up
+        IdempotencyRecord abandoned = record(alice, key, null, new Date(System.currentTimeMillis() - 5 * 60_000),
+                new Date(System.currentTimeMillis() + 60_000));
+
+        assertEquals("Top Up Success", topUp(alice, key, topUp(PIN)).getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+
+        // had the original request still been running, its completion would find no claim and roll back
+        assertThrows(IllegalStateException.class, () -> idempotencyService.complete(abandoned.getId(), new TopUpResponse()));
+        assertEquals("Top Up Success", topUp(alice, key, topUp(PIN)).getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+    }
+
+    @Test
+    void incompleteClaimWithinTheProcessingTimeoutIsNotTakenOver() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+        record(alice, key, null, new Date(), new Date(System.currentTimeMillis() + 60_000));
+
+        assertThrows(RuntimeException.class, () -> topUp(alice, key, topUp(PIN)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceOf(alice)));
+    }
+
+    @Test
+    void expiredOutcomeIsNotReplayed() {
+        Wallet alice = createWallet();
+        String key = UUID.randomUUID().toString();
+        record(alice, key, "{\"status\":\"Success\",\"message\":\"stale\"}",
+                new Date(System.currentTimeMillis() - 25 * 3_600_000L), new Date(System.currentTimeMillis() - 3_600_000L));
+
+        assertEquals("Top Up Success", topUp(alice, key, topUp(PIN)).getMessage());
+        assertEquals(0, AMOUNT.compareTo(balanceOf(alice)));
+    }
+
+    private IdempotencyRecord record(Wallet wallet, String key, String responseBody, Date createdAt, Date expiresAt) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(wallet.getUser().getId());
+        record.setIdempotencyKey(key);
+        record.setRequestHash("unknown");
+        record.setResponseBody(responseBody);
+        record.setCreatedAt(createdAt);
+        record.setExpiresAt(expiresAt);
+        return idempotencyRecordRepository.saveAndFlush(record);
+    }
+
+    private Wallet createWallet() {
+        return fixtures.createWallet(8600000L + System.nanoTime() % 100000, "Idem", BigDecimal.ZERO, PIN);
+    }
+
+    private TopUpResponse topUp(Wallet wallet, String key, TopUpRequest request) {
+        fixtures.startRequest(wallet.getUser());
+        return idempotencyService.execute(key, "topup", request, TopUpResponse.class,
+                claimId -> transactionService.topup(request, null, claimId));
+    }
+
+    private TopUpRequest topUp(String pin) {
+        TopUpRequest request = new TopUpRequest();
+        request.setPin(pin);
+        request.setAmount(AMOUNT);
+        request.setPaymentMethod("Bank");
+        return request;
+    }
+
+    private BigDecimal balanceOf(Wallet wallet) {
+        return walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
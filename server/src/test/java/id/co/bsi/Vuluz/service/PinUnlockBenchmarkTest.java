@@ -0,0 +1,76 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.request.PinUnlockRequest;
+import id.co.bsi.Vuluz.dto.request.TransferRequest;
+import id.co.bsi.Vuluz.model.Wallet;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+
+// Transfers on one thread, so per core, with the PIN checked by BCrypt on every transfer against
+// a PIN unlock token obtained once. Run with: mvn test -Dtest=PinUnlockBenchmarkTest -Dbenchmarks=true
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PinUnlockBenchmarkTest {
+    private static final String PIN = "123456";
+    private static final int WARMUP = 20;
+    private static final int TRANSFERS = 200;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private PinUnlockService pinUnlockService;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void pinOnEveryTransferAgainstUnlockToken() {
+        Wallet alice = fixtures.createWallet(WalletFixtures.walletNumber(530000), "Alice", BigDecimal.valueOf(1000000), PIN);
+        Wallet bob = fixtures.createWallet(WalletFixtures.walletNumber(540000), "Bob", BigDecimal.valueOf(1000000), PIN);
+
+        fixtures.startRequest(alice.getUser());
+        PinUnlockRequest unlock = new PinUnlockRequest();
+        unlock.setPin(PIN);
+        String unlockToken = pinUnlockService.unlock(unlock).getUnlockToken();
+
+        double withPin = transfersPerSecond(alice, bob, PIN, null);
+        double withUnlockToken = transfersPerSecond(alice, bob, null, unlockToken);
+
+        log.info("BCrypt PIN per transfer: {} transfers/s per core", String.format("%.0f", withPin));
+        log.info("PIN unlock token:        {} transfers/s per core ({}x)", String.format("%.0f", withUnlockToken),
+                String.format("%.1f", withUnlockToken / withPin));
+    }
+
+    private double transfersPerSecond(Wallet from, Wallet to, String pin, String unlockToken) {
+        TransferRequest request = new TransferRequest();
+        request.setToWalletNumber(to.getWalletNumber());
+        request.setAmount(BigDecimal.ONE);
+        request.setPin(pin);
+
+        for (int i = 0; i < WARMUP; i++) {
+            fixtures.startRequest(from.getUser());
+            transactionService.transfer(request, unlockToken);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            fixtures.startRequest(from.getUser());
+            transactionService.transfer(request, unlockToken);
+        }
+        return TRANSFERS / ((System.nanoTime() - start) / 1e9);
+    }
+}
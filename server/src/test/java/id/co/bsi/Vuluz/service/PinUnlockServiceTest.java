@@ -0,0 +1,154 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.request.PinUnlockRequest;
+import id.co.bsi.Vuluz.dto.request.TopUpRequest;
+import id.co.bsi.Vuluz.dto.request.TransferRequest;
+import id.co.bsi.Vuluz.dto.response.PinUnlockResponse;
+import id.co.bsi.Vuluz.model.User;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class PinUnlockServiceTest {
+    private static final String PIN = "123456";
+
+    @Autowired
+    private PinUnlockService pinUnlockService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void unlockTokenStandsInForThePin() {
+        long suffix = System.nanoTime() % 5000;
+        // transfers only accept wallet numbers with a valid check digit
+        Wallet alice = fixtures.createWallet(WalletFixtures.walletNumber(920000 + suffix * 2), "Alice", BigDecimal.ZERO, PIN);
+        Wallet bob = fixtures.createWallet(WalletFixtures.walletNumber(920000 + suffix * 2 + 1), "Bob", BigDecimal.ZERO, PIN);
+
+        fixtures.startRequest(alice.getUser());
+        String unlockToken = pinUnlockService.unlock(pin(PIN)).getUnlockToken();
+
+        fixtures.startRequest(alice.getUser());
+        transactionService.topup(topUp(null), unlockToken);
+        fixtures.startRequest(alice.getUser());
+        transactionService.transfer(transfer(bob.getWalletNumber(), null), unlockToken);
+
+        // without the token the PIN is still required
+        fixtures.startRequest(alice.getUser());
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> transactionService.transfer(transfer(bob.getWalletNumber(), null), null));
+        assertEquals("Input your pin", e.getMessage());
+    }
+
+    @Test
+    void unlockTokenOnlyWorksForItsOwnerAndPin() {
+        long suffix = System.nanoTime() % 10000;
+        Wallet alice = fixtures.createWallet(9300000L + suffix * 10, "Alice", BigDecimal.ZERO, PIN);
+        Wallet bob = fixtures.createWallet(9300000L + suffix * 10 + 1, "Bob", BigDecimal.ZERO, PIN);
+
+        fixtures.startRequest(alice.getUser());
+        String unlockToken = pinUnlockService.unlock(pin(PIN)).getUnlockToken();
+
+        fixtures.startRequest(bob.getUser());
+        assertEquals("Input pin is required",
+                assertThrows(RuntimeException.class, () -> transactionService.topup(topUp(null), unlockToken)).getMessage());
+
+        // a login token is not an unlock token
+        fixtures.startRequest(alice.getUser());
+        String loginToken = fixtures.token(alice.getUser());
+        assertEquals("Input pin is required",
+                assertThrows(RuntimeException.class, () -> transactionService.topup(topUp(null), loginToken)).getMessage());
+
+        // changing the PIN revokes tokens issued for the old one
+        User user = userRepository.findById(alice.getUser().getId()).orElseThrow();
+        user.setPin(passwordEncoder.encode("654321"));
+        userRepository.save(user);
+        fixtures.startRequest(alice.getUser());
+        assertEquals("Input pin is required",
+                assertThrows(RuntimeException.class, () -> transactionService.topup(topUp(null), unlockToken)).getMessage());
+    }
+
+    @Test
+    void logoutEndsTheUnlocksOfThatLogin() {
+        Wallet alice = fixtures.createWallet(9500000L + System.nanoTime() % 100000, "Alice", BigDecimal.ZERO, PIN);
+        String login = fixtures.token(alice.getUser());
+        String otherLogin = fixtures.token(alice.getUser());
+
+        fixtures.startRequest(login);
+        String unlockToken = pinUnlockService.unlock(pin(PIN)).getUnlockToken();
+        fixtures.startRequest(otherLogin);
+        String otherUnlockToken = pinUnlockService.unlock(pin(PIN)).getUnlockToken();
+
+        userService.logout(login, null, alice.getUser().getId());
+
+        fixtures.startRequest(otherLogin);
+        assertEquals("Input pin is required",
+                assertThrows(RuntimeException.class, () -> transactionService.topup(topUp(null), unlockToken)).getMessage());
+        fixtures.startRequest(otherLogin);
+        transactionService.topup(topUp(null), otherUnlockToken);
+    }
+
+    @Test
+    void wrongPinIsNotUnlocked() {
+        Wallet alice = fixtures.createWallet(9400000L + System.nanoTime() % 100000, "Alice", BigDecimal.ZERO, PIN);
+
+        fixtures.startRequest(alice.getUser());
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pinUnlockService.unlock(pin("000000")));
+        assertEquals("Invalid PIN", e.getMessage());
+
+        fixtures.startRequest(alice.getUser());
+        PinUnlockResponse response = pinUnlockService.unlock(pin(PIN));
+        assertEquals(300L, response.getExpiresIn());
+    }
+
+    private PinUnlockRequest pin(String pin) {
+        PinUnlockRequest request = new PinUnlockRequest();
+        request.setPin(pin);
+        return request;
+    }
+
+    private TopUpRequest topUp(String pin) {
+        TopUpRequest request = new TopUpRequest();
+        request.setPin(pin);
+        request.setAmount(BigDecimal.valueOf(50000));
+        request.setPaymentMethod("Bank");
+        return request;
+    }
+
+    private TransferRequest transfer(Long toWalletNumber, String pin) {
+        TransferRequest request = new TransferRequest();
+        request.setToWalletNumber(toWalletNumber);
+        request.setAmount(BigDecimal.valueOf(1000));
+        request.setPin(pin);
+        return request;
+    }
+}
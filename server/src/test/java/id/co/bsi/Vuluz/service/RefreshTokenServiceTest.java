@@ -0,0 +1,186 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.dto.request.LogInRequest;
+import id.co.bsi.Vuluz.dto.response.LogInResponse;
+import id.co.bsi.Vuluz.model.RefreshToken;
+import id.co.bsi.Vuluz.model.User;
+import id.co.bsi.Vuluz.repository.RefreshTokenRepository;
+import id.co.bsi.Vuluz.repository.UserRepository;
+import id.co.bsi.Vuluz.utils.JwtUtility;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class RefreshTokenServiceTest {
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtility jwtUtility;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Test
+    void refreshMintsAccessTokensWithoutHashing() {
+        User user = createUser();
+        LogInResponse login = userService.login(credentials(user));
+
+        // app.jwt.expiration is 600000 ms in the test properties
+        assertEquals(600L, login.getExpiresIn());
+        Claims claims = jwtUtility.parseClaims(login.getToken());
+        assertEquals(600000L, claims.getExpiration().getTime() - claims.getIssuedAt().getTime());
+
+        double hashesBefore = hashingCount();
+        LogInResponse refreshed = refreshTokenService.refresh(login.getRefreshToken());
+
+        assertEquals(hashesBefore, hashingCount());
+        assertEquals(user.getId(), jwtUtility.extractUserId(refreshed.getToken()));
+        assertEquals(user.getEmail(), jwtUtility.extractUsername(refreshed.getToken()));
+        assertNotEquals(login.getRefreshToken(), refreshed.getRefreshToken());
+    }
+
+    @Test
+    void reusedRefreshTokenRevokesTheWholeFamily() {
+        User user = createUser();
+        String first = userService.login(credentials(user)).getRefreshToken();
+        String second = refreshTokenService.refresh(first).getRefreshToken();
+        usedLongAgo(user);
+
+        RuntimeException reused = assertThrows(RuntimeException.class, () -> refreshTokenService.refresh(first));
+        assertEquals("Refresh token was already used", reused.getMessage());
+        assertThrows(RuntimeException.class, () -> refreshTokenService.refresh(second));
+
+        RuntimeException unknown = assertThrows(RuntimeException.class, () -> refreshTokenService.refresh("not-a-token"));
+        assertEquals("Invalid refresh token", unknown.getMessage());
+    }
+
+    @Test
+    void nearSimultaneousRefreshesWithTheSameTokenShareTheSuccessor() throws Exception {
+        User user = createUser();
+        String first = userService.login(credentials(user)).getRefreshToken();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CompletableFuture<LogInResponse> tabA = CompletableFuture.supplyAsync(() -> refreshAfter(start, first));
+        CompletableFuture<LogInResponse> tabB = CompletableFuture.supplyAsync(() -> refreshAfter(start, first));
+        start.countDown();
+
+        String successor = tabA.get(10, TimeUnit.SECONDS).getRefreshToken();
+        assertEquals(successor, tabB.get(10, TimeUnit.SECONDS).getRefreshToken());
+        // the family was not revoked
+        assertNotEquals(successor, refreshTokenService.refresh(successor).getRefreshToken());
+    }
+
+    @Test
+    void graceReuseWithoutTheKnownSuccessorIsRejectedWithoutMinting() {
+        User user = createUser();
+        String refreshToken = refreshTokenService.issue(user.getId());
+        // rotated moments ago by another instance, whose successor this one never saw
+        RefreshToken used = tokensOf(user).get(0);
+        used.setUsedAt(new Date());
+        used.setReplacedBy("0".repeat(64));
+        refreshTokenRepository.save(used);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> refreshTokenService.refresh(refreshToken));
+
+        assertEquals("Refresh token was already used", e.getMessage());
+        assertEquals(1, tokensOf(user).size());
+        assertFalse(tokensOf(user).get(0).isRevoked());
+    }
+
+    @Test
+    void logoutRevokesTheRefreshToken() {
+        User user = createUser();
+        LogInResponse login = userService.login(credentials(user));
+
+        userService.logout(login.getToken(), login.getRefreshToken(), user.getId());
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.refresh(login.getRefreshToken()));
+    }
+
+    @Test
+    void rejectedLogoutKeepsTheRefreshToken() {
+        User user = createUser();
+        LogInResponse login = userService.login(credentials(user));
+
+        // a scoped token is not a login and cannot be logged out
+        String scoped = jwtUtility.generateScopedToken(user.getId(), "pin-unlock", Map.of(), Duration.ofMinutes(1));
+        assertThrows(RuntimeException.class, () -> userService.logout(scoped, login.getRefreshToken(), user.getId()));
+
+        refreshTokenService.refresh(login.getRefreshToken());
+    }
+
+    private LogInResponse refreshAfter(CountDownLatch start, String refreshToken) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return refreshTokenService.refresh(refreshToken);
+    }
+
+    private List<RefreshToken> tokensOf(User user) {
+        return refreshTokenRepository.findAll().stream()
+                .filter(token -> user.getId().equals(token.getUserId()))
+                .toList();
+    }
+
+    // moves the user's rotations out of the reuse grace window
+    private void usedLongAgo(User user) {
+        for (RefreshToken token : refreshTokenRepository.findAll()) {
+            if (user.getId().equals(token.getUserId()) && token.getUsedAt() != null) {
+                token.setUsedAt(new Date(System.currentTimeMillis() - 60_000));
+                refreshTokenRepository.save(token);
+            }
+        }
+    }
+
+    private double hashingCount() {
+        return meterRegistry.get("auth.hashing.latency").timers().stream().mapToLong(timer -> timer.count()).sum();
+    }
+
+    private LogInRequest credentials(User user) {
+        LogInRequest request = new LogInRequest();
+        request.setEmail(user.getEmail());
+        request.setPassword("Secret123");
+        return request;
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setEmail("refresh" + System.nanoTime() + "@vuluz.test");
+        user.setFullName("Refresh");
+        user.setPassword(passwordEncoder.encode("Secret123"));
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,135 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.filter.JwtAuthenticationFilter;
+import id.co.bsi.Vuluz.model.RevokedToken;
+import id.co.bsi.Vuluz.repository.RevokedTokenRepository;
+import id.co.bsi.Vuluz.utils.BloomFilter;
+import id.co.bsi.Vuluz.utils.JwtUtility;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TokenRevocationServiceTest {
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JwtUtility jwtUtility;
+
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void loggedOutTokenIsRejectedWithoutAQuery() throws Exception {
+        String token = token("logout@vuluz.test", 81L);
+        String otherToken = token("logout@vuluz.test", 81L);
+        userService.logout(token, null, 81L);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(401, filter(token).getStatus());
+        assertEquals(200, filter(otherToken).getStatus());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // logging out twice is harmless
+        userService.logout(token, null, 81L);
+    }
+
+    @Test
+    void tokenOfAnotherUserCannotBeRevoked() {
+        String token = token("victim@vuluz.test", 82L);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> userService.logout(token, null, 83L));
+        assertEquals("Invalid token", e.getMessage());
+        assertFalse(tokenRevocationService.isRevoked(jwtUtility.parseClaims(token).getId()));
+    }
+
+    @Test
+    void revocationsFromOtherInstancesArePickedUpAndExpiredOnesPurged() {
+        String live = UUID.randomUUID().toString();
+        String expired = UUID.randomUUID().toString();
+        save(live, new Date(System.currentTimeMillis() + 60000));
+        save(expired, new Date(System.currentTimeMillis() - 1000));
+
+        tokenRevocationService.sync();
+        assertTrue(tokenRevocationService.isRevoked(live));
+        assertFalse(tokenRevocationService.isRevoked(expired));
+
+        tokenRevocationService.purgeExpired();
+        assertTrue(revokedTokenRepository.existsById(live));
+        assertFalse(revokedTokenRepository.existsById(expired));
+        assertTrue(tokenRevocationService.isRevoked(live));
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("jti-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("jti-" + i));
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, falsePositives + " false positives");
+    }
+
+    private void save(String jti, Date expiresAt) {
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setRevokedAt(new Date());
+        token.setExpiresAt(expiresAt);
+        revokedTokenRepository.save(token);
+    }
+
+    private String token(String email, Long userId) {
+        return jwtUtility.generateToken(
+                org.springframework.security.core.userdetails.User.withUsername(email).password("")
+                        .authorities("ROLE_USER").build(),
+                userId);
+    }
+
+    private MockHttpServletResponse filter(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/balance");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        jwtAuthenticationFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,121 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.model.Posting;
+import id.co.bsi.Vuluz.model.PostingDirection;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.PostingRepository;
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TransferEngineConcurrencyTest {
+    private static final int WALLETS = 4;
+    private static final int TRANSFERS = 2000;
+    private static final int THREADS = 16;
+    private static final BigDecimal OPENING_BALANCE = BigDecimal.valueOf(50000);
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @Test
+    void parallelTransfersBetweenHotWalletsConserveMoney() throws Exception {
+        List<Wallet> wallets = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            wallets.add(fixtures.createWallet(900000L + i, "Hot", OPENING_BALANCE));
+        }
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(WALLETS);
+                int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 2000));
+                try {
+                    transferEngine.transfer(wallets.get(from).getId(), wallets.get(from).getWalletNumber(),
+                            wallets.get(to).getId(), wallets.get(to).getWalletNumber(), amount, "stress");
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    assertEquals("Balance is not enough", e.getMessage());
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        BigDecimal total = BigDecimal.ZERO;
+        Map<Long, BigDecimal> netByTransaction = new HashMap<>();
+        int postings = 0;
+        for (Wallet wallet : wallets) {
+            BigDecimal balance = walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+            assertTrue(balance.signum() >= 0, "wallet " + wallet.getWalletNumber() + " went negative: " + balance);
+            total = total.add(balance);
+
+            // postings of one wallet are written under its row lock, so id order is the order they were applied in
+            List<Posting> ledger = new ArrayList<>(postingRepository.findByWalletId(wallet.getId()));
+            ledger.sort(Comparator.comparing(Posting::getId));
+            BigDecimal running = OPENING_BALANCE;
+            for (Posting posting : ledger) {
+                BigDecimal signed = signed(posting);
+                running = running.add(signed);
+                assertEquals(0, running.compareTo(posting.getBalanceAfter()),
+                        "posting " + posting.getId() + " of wallet " + wallet.getWalletNumber() + " has a broken balanceAfter");
+                netByTransaction.merge(posting.getTransaction().getId(), signed, BigDecimal::add);
+            }
+            postings += ledger.size();
+
+            assertEquals(0, running.compareTo(balance),
+                    "postings of wallet " + wallet.getWalletNumber() + " do not add up to its balance");
+            if (!ledger.isEmpty()) {
+                assertEquals(0, ledger.get(ledger.size() - 1).getBalanceAfter().compareTo(balance),
+                        "last posting of wallet " + wallet.getWalletNumber() + " disagrees with its balance");
+            }
+        }
+
+        assertEquals(TRANSFERS, succeeded.get() + rejected.get());
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.valueOf(WALLETS)).compareTo(total));
+        assertEquals(2 * succeeded.get(), postings);
+        assertEquals(succeeded.get(), netByTransaction.size());
+        netByTransaction.forEach((transactionId, net) ->
+                assertEquals(0, net.signum(), "transaction " + transactionId + " debits and credits differ by " + net));
+    }
+
+    private static BigDecimal signed(Posting posting) {
+        return posting.getDirection() == PostingDirection.CREDIT ? posting.getAmount() : posting.getAmount().negate();
+    }
+}
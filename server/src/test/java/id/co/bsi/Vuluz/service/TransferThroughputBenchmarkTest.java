@@ -0,0 +1,87 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.VuluzApplication;
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.model.Wallet;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+// Transfer throughput with the default profile's SQL echo and bind tracing against the settings of
+// application-prod.properties. The PostgreSQL driver properties of the prod profile are left out
+// because the benchmark runs on H2.
+// Run with: mvn test -Dtest=TransferThroughputBenchmarkTest -Dbenchmarks=true
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class TransferThroughputBenchmarkTest {
+    private static final int WARMUP = 500;
+    private static final int TRANSFERS = 5000;
+
+    @Test
+    void sqlLoggingAgainstProdSettings() throws IOException {
+        Map<String, Object> logging = new HashMap<>();
+        logging.put("spring.jpa.show-sql", "true");
+        logging.put("logging.level.org.hibernate.SQL", "DEBUG");
+        logging.put("logging.level.org.hibernate.orm.jdbc.bind", "TRACE");
+        logging.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "TRACE");
+
+        Map<String, Object> prod = prodSettings();
+
+        double withLogging = transfersPerSecond("logging", logging);
+        double withProd = transfersPerSecond("prod", prod);
+
+        log.info("SQL logging on: {} transfers/s", String.format("%.0f", withLogging));
+        log.info("prod settings:  {} transfers/s ({})", String.format("%.0f", withProd),
+                String.format("%+.0f%%", (withProd / withLogging - 1) * 100));
+    }
+
+    private Map<String, Object> prodSettings() throws IOException {
+        Map<String, Object> prod = new HashMap<>();
+        PropertiesLoaderUtils.loadProperties(new ClassPathResource("application-prod.properties"))
+                .forEach((key, value) -> prod.put((String) key, value));
+        prod.keySet().removeIf(key -> key.startsWith("spring.datasource.hikari.data-source-properties."));
+        return prod;
+    }
+
+    private double transfersPerSecond(String name, Map<String, Object> properties) {
+        Map<String, Object> all = new HashMap<>(properties);
+        all.put("spring.datasource.url", "jdbc:h2:mem:transfer-" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH");
+        all.put("spring.jpa.properties.hibernate.generate_statistics", "false");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(VuluzApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(all)
+                .run()) {
+            TransferEngine transferEngine = context.getBean(TransferEngine.class);
+            WalletFixtures fixtures = context.getBean(WalletFixtures.class);
+            Wallet alice = fixtures.createWallet(5100000L, "Alice", BigDecimal.valueOf(1000000));
+            Wallet bob = fixtures.createWallet(5200000L, "Bob", BigDecimal.valueOf(1000000));
+
+            for (int i = 0; i < WARMUP; i++) {
+                transfer(transferEngine, alice, bob, i);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < TRANSFERS; i++) {
+                transfer(transferEngine, alice, bob, i);
+            }
+            return TRANSFERS / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private void transfer(TransferEngine transferEngine, Wallet alice, Wallet bob, int i) {
+        Wallet from = i % 2 == 0 ? alice : bob;
+        Wallet to = i % 2 == 0 ? bob : alice;
+        transferEngine.transfer(from.getId(), from.getWalletNumber(), to.getId(), to.getWalletNumber(),
+                BigDecimal.ONE, "benchmark");
+    }
+}
@@ -0,0 +1,134 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.model.Wallet;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the money paths on virtual threads under JFR and fails if a virtual thread blocked while
+// pinned to its carrier (inside synchronized) anywhere below our own code.
+@SpringBootTest
+class VirtualThreadPinningTest {
+    private static final String APPLICATION_PACKAGE = "id.co.bsi.Vuluz.";
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @Test
+    void transfersAndReadsDoNotPinCarrierThreads() throws Exception {
+        long suffix = System.nanoTime() % 100000;
+        List<Wallet> wallets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            wallets.add(fixtures.createWallet(6100000L + i * 100000L + suffix, "Pin" + i, BigDecimal.valueOf(1000)));
+        }
+
+        List<RecordedEvent> pinned = recordPinning(() -> {
+            List<Future<?>> tasks = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                // proves the recording sees pinning at all, so an empty result means something
+                tasks.add(executor.submit(this::pinOnPurpose));
+                for (int i = 0; i < 60; i++) {
+                    Wallet from = wallets.get(i % 4);
+                    Wallet to = wallets.get((i + 1) % 4);
+                    tasks.add(executor.submit(switch (i % 3) {
+                        case 0 -> () -> transferEngine.transfer(from.getId(), from.getWalletNumber(),
+                                to.getId(), to.getWalletNumber(), BigDecimal.ONE, "pinning check");
+                        case 1 -> () -> transferEngine.topup(from.getId(), from.getWalletNumber(),
+                                BigDecimal.TEN, "Bank", "pinning check");
+                        default -> () -> {
+                            fixtures.startRequest(from.getUser());
+                            try {
+                                dashboardService.getTransactionHistory("", null, null, "", "", 20, null);
+                            } finally {
+                                RequestContextHolder.resetRequestAttributes();
+                            }
+                        };
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            }
+        });
+
+        assertTrue(pinned.stream().anyMatch(event -> isFrom(event, "pinOnPurpose")),
+                "JFR did not record the deliberate pinning");
+
+        List<String> offending = pinned.stream()
+                .filter(event -> !isFrom(event, "pinOnPurpose"))
+                .filter(this::passesThroughApplicationCode)
+                .map(this::describe)
+                .toList();
+        assertTrue(offending.isEmpty(), "virtual threads were pinned:\n" + String.join("\n\n", offending));
+    }
+
+    private synchronized void pinOnPurpose() {
+        try {
+            Thread.sleep(30);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<RecordedEvent> recordPinning(Workload workload) throws Exception {
+        Path file = Files.createTempFile("vuluz-pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            workload.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private boolean isFrom(RecordedEvent event, String methodName) {
+        return frames(event).stream().anyMatch(frame -> frame.getMethod().getName().contains(methodName));
+    }
+
+    private boolean passesThroughApplicationCode(RecordedEvent event) {
+        return frames(event).stream()
+                .anyMatch(frame -> frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE));
+    }
+
+    private List<RecordedFrame> frames(RecordedEvent event) {
+        return event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+    }
+
+    private String describe(RecordedEvent event) {
+        return "pinned for " + event.getDuration() + "\n" + frames(event).stream()
+                .map(frame -> "    at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private interface Workload {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,74 @@
+package id.co.bsi.Vuluz.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class WalletNumberAllocatorTest {
+    @Autowired
+    private WalletNumberAllocator walletNumberAllocator;
+
+    @Test
+    void everySlotMapsToADistinctWellFormedNumber() {
+        boolean[] seen = new boolean[(int) WalletNumberAllocator.CAPACITY];
+        for (long slot = 1; slot <= WalletNumberAllocator.CAPACITY; slot++) {
+            long walletNumber = WalletNumberAllocator.walletNumberForSlot(slot);
+            assertTrue(walletNumber >= 1_000_000 && walletNumber <= 9_999_999, "not 7 digits: " + walletNumber);
+            assertTrue(WalletNumberAllocator.isWellFormed(walletNumber));
+
+            int payloadIndex = (int) (walletNumber / 10 - 100_000);
+            assertFalse(seen[payloadIndex], "payload issued twice: " + walletNumber);
+            seen[payloadIndex] = true;
+        }
+    }
+
+    @Test
+    void checkDigitCatchesSingleDigitTypos() {
+        long walletNumber = WalletNumberAllocator.walletNumberForSlot(42);
+        String digits = String.valueOf(walletNumber);
+        for (int position = 0; position < digits.length(); position++) {
+            for (char replacement = '0'; replacement <= '9'; replacement++) {
+                if (replacement == digits.charAt(position) || (position == 0 && replacement == '0')) {
+                    continue;
+                }
+                String typo = digits.substring(0, position) + replacement + digits.substring(position + 1);
+                assertFalse(WalletNumberAllocator.isWellFormed(Long.parseLong(typo)), typo);
+            }
+        }
+        // numbers issued before the allocator have six digits and no check digit
+        assertTrue(WalletNumberAllocator.isWellFormed(123456L));
+        assertFalse(WalletNumberAllocator.isWellFormed(12345L));
+    }
+
+    @Test
+    void concurrentRegistrationsNeverShareANumber() throws Exception {
+        long issuedBefore = walletNumberAllocator.utilization().issued();
+        List<Future<Long>> allocations = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                allocations.add(executor.submit(walletNumberAllocator::allocate));
+            }
+        }
+        Set<Long> walletNumbers = new HashSet<>();
+        for (Future<Long> allocation : allocations) {
+            walletNumbers.add(allocation.get());
+        }
+        assertEquals(200, walletNumbers.size());
+        WalletNumberAllocator.Utilization utilization = walletNumberAllocator.utilization();
+        assertEquals(issuedBefore + 200, utilization.issued());
+        assertEquals(WalletNumberAllocator.CAPACITY, utilization.capacity());
+    }
+}
@@ -0,0 +1,161 @@
+package id.co.bsi.Vuluz.service;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.TransactionSummaryResponse;
+import id.co.bsi.Vuluz.dto.request.EditProfileRequest;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class WalletReadCacheTest {
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    private Wallet alice;
+    private Wallet bob;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        long suffix = System.nanoTime() % 100000;
+        alice = fixtures.createWallet(7600000L + suffix, "Alice", BigDecimal.valueOf(100));
+        bob = fixtures.createWallet(7700000L + suffix, "Bob", BigDecimal.valueOf(100));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        fixtures.startRequest(alice.getUser());
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void repeatedPollsAreServedFromTheCache() {
+        // the first balance poll only learns the wallet id, the second one fills the cache
+        dashboardService.getBalance();
+        dashboardService.getBalance();
+        dashboardService.getTransactionSummary();
+        double hitsBefore = hits("wallet.balance");
+
+        statistics.clear();
+        assertBalance(100, dashboardService.getBalance().getBalance());
+        assertBalance(100, dashboardService.getTransactionSummary().getCurrentBalance());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(hitsBefore + 1, hits("wallet.balance"));
+    }
+
+    @Test
+    void committedTransfersEvictBothWallets() {
+        dashboardService.getBalance();
+        assertBalance(100, dashboardService.getBalance().getBalance());
+        TransactionSummaryResponse before = dashboardService.getTransactionSummary();
+        assertBalance(100, before.getCurrentBalance());
+
+        transferEngine.transfer(alice.getId(), alice.getWalletNumber(), bob.getId(), bob.getWalletNumber(),
+                BigDecimal.valueOf(40), "lunch");
+
+        assertBalance(60, dashboardService.getBalance().getBalance());
+        assertBalance(60, dashboardService.getTransactionSummary().getCurrentBalance());
+
+        fixtures.startRequest(bob.getUser());
+        dashboardService.getBalance();
+        assertBalance(140, dashboardService.getBalance().getBalance());
+    }
+
+    @Test
+    void rolledBackTransfersDoNotEvict() {
+        dashboardService.getBalance();
+        dashboardService.getBalance();
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> template.executeWithoutResult(status -> {
+            walletRepository.credit(alice.getId(), BigDecimal.TEN, new Date());
+            transferEngine.topup(alice.getId(), alice.getWalletNumber(), BigDecimal.TEN, "Bank", "rolled back");
+            throw new IllegalStateException("abort");
+        }));
+
+        statistics.clear();
+        assertBalance(100, dashboardService.getBalance().getBalance());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void renamingTheOwnerEvictsTheBalance() {
+        dashboardService.getBalance();
+        assertEquals("Alice " + alice.getWalletNumber(), dashboardService.getBalance().getAccountName());
+
+        EditProfileRequest request = new EditProfileRequest();
+        request.setFullName("Alice Renamed");
+        profileService.editProfiles(request);
+
+        assertEquals("Alice Renamed", dashboardService.getBalance().getAccountName());
+    }
+
+    @Test
+    void invalidationsFromOtherNodesEvict() {
+        dashboardService.getBalance();
+        dashboardService.getBalance();
+        walletRepository.findById(alice.getId()).ifPresent(wallet -> {
+            wallet.setBalance(BigDecimal.valueOf(75));
+            walletRepository.save(wallet);
+        });
+        assertBalance(100, dashboardService.getBalance().getBalance());
+
+        invalidationBus.publish(List.of(alice.getId()));
+
+        assertBalance(75, dashboardService.getBalance().getBalance());
+    }
+
+    private double hits(String cache) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", "hit").functionCounter().count();
+    }
+
+    private void assertBalance(long expected, BigDecimal actual) {
+        assertEquals(0, BigDecimal.valueOf(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,73 @@
+package id.co.bsi.Vuluz.utils;
+
+import id.co.bsi.Vuluz.WalletFixtures;
+import id.co.bsi.Vuluz.dto.request.TopUpRequest;
+import id.co.bsi.Vuluz.dto.response.BalanceResponse;
+import id.co.bsi.Vuluz.model.Wallet;
+import id.co.bsi.Vuluz.service.DashboardService;
+import id.co.bsi.Vuluz.service.TransactionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class CurrentAccountContextTest {
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private WalletFixtures fixtures;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void accountIsResolvedOncePerRequest() {
+        Wallet wallet = fixtures.createWallet(7400000L + System.nanoTime() % 100000, "Context", BigDecimal.ZERO, "123456");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        fixtures.startRequest(wallet.getUser());
+        statistics.clear();
+
+        TopUpRequest topUp = new TopUpRequest();
+        topUp.setPin("123456");
+        topUp.setAmount(BigDecimal.valueOf(50000));
+        topUp.setPaymentMethod("Bank");
+        transactionService.topup(topUp);
+        BalanceResponse balance = dashboardService.getBalance();
+        dashboardService.getTransactionSummary();
+
+        assertEquals(0, BigDecimal.valueOf(50000).compareTo(balance.getBalance()));
+        assertEquals(1, identityQueryCount(statistics));
+
+        // a new request resolves the account again
+        fixtures.startRequest(wallet.getUser());
+        transactionService.topup(topUp);
+        assertEquals(2, identityQueryCount(statistics));
+    }
+
+    private long identityQueryCount(Statistics statistics) {
+        return Arrays.stream(statistics.getQueries())
+                .filter(query -> query.contains("AS pinHash"))
+                .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionCount())
+                .sum();
+    }
+}
@@ -0,0 +1,70 @@
+package id.co.bsi.Vuluz.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilityTest {
+    private static final String SECRET = "hendraaufaevelionisafadiyahsalmahendraaufaevelionisafadiyahsalmahendraaufaevelionisafadiyahsalma";
+
+    private JwtUtility jwtUtility;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtility = new JwtUtility();
+        ReflectionTestUtils.setField(jwtUtility, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtUtility, "jwtExpiration", 600000L);
+        ReflectionTestUtils.setField(jwtUtility, "cacheSize", 100L);
+        jwtUtility.init();
+    }
+
+    @Test
+    void tokenIsVerifiedOnceAndThenServedFromTheCache() {
+        UserDetails user = User.withUsername("alice@vuluz.test").password("").build();
+        String token = jwtUtility.generateToken(user, 42L);
+
+        Claims first = jwtUtility.parseClaims(token);
+        Claims second = jwtUtility.parseClaims(token);
+
+        assertSame(first, second);
+        assertEquals("alice@vuluz.test", jwtUtility.extractUsername(token));
+        assertEquals(42L, jwtUtility.extractUserId(token));
+        assertTrue(jwtUtility.validateToken(first, user));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtUtility.generateToken(User.withUsername("alice@vuluz.test").password("").build(), 42L);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + Jwts.builder().subject("mallory@vuluz.test").compact().split("\\.")[1] + "." + parts[2];
+
+        assertThrows(JwtException.class, () -> jwtUtility.parseClaims(forged));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String expired = Jwts.builder()
+                .subject("alice@vuluz.test")
+                .claim("userId", 42L)
+                .expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtility.parseClaims(expired));
+    }
+}